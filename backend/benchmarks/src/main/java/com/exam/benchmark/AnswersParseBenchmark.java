@@ -0,0 +1,70 @@
+package com.exam.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * answers 字段（{"题目ID":"答案"}）的 Jackson 解析：
+ * 数据绑定为 Map（交卷合并、自动保存加载使用）与流式逐个读取（AnswerKey 评分使用）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnswersParseBenchmark {
+
+    private static final TypeReference<LinkedHashMap<String, String>> ANSWERS_TYPE = new TypeReference<>() {};
+
+    @Param({"20", "100", "500"})
+    private int answerCount;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private String answersJson;
+
+    @Setup
+    public void setup() {
+        answersJson = SyntheticBank.answersJson(SyntheticBank.questions(answerCount, 42), 100, 7);
+    }
+
+    @Benchmark
+    public Map<String, String> dataBindMap() throws IOException {
+        return objectMapper.readValue(answersJson, ANSWERS_TYPE);
+    }
+
+    @Benchmark
+    public void streaming(Blackhole blackhole) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(answersJson)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.FIELD_NAME) {
+                    blackhole.consume(parser.getTextLength());
+                } else if (token == JsonToken.VALUE_STRING) {
+                    blackhole.consume(parser.getTextCharacters()[parser.getTextOffset()]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.exam.benchmark;
+
+import com.exam.cache.AnswerKey;
+import com.exam.entity.Question;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 评分（ExamRecordService.calculateScore 的计算部分）
+ * answerKey：当前实现，预编译的 AnswerKey 流式解析作答JSON；
+ * answerCodes：二进制作答（每题3位）逐位置比较；
+ * legacy：原实现，Jackson 解析为 Map 后逐题比较字符串。均不含数据库访问。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GradingBenchmark {
+
+    private static final TypeReference<Map<String, String>> ANSWERS_TYPE = new TypeReference<>() {};
+
+    @Param({"20", "100", "500"})
+    private int questionCount;
+
+    // 作答比例（%），决定作答Map的大小
+    @Param({"50", "100"})
+    private int answeredPercent;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<Question> questions;
+    private AnswerKey answerKey;
+    private String answersJson;
+    private byte[] answerCodes;
+
+    @Setup
+    public void setup() {
+        questions = SyntheticBank.questions(questionCount, 42);
+        answerKey = AnswerKey.compile(questions);
+        answersJson = SyntheticBank.answersJson(questions, answeredPercent, 7);
+        answerCodes = answerKey.getLayout().encode(answersJson);
+    }
+
+    @Benchmark
+    public int answerKey() {
+        return answerKey.grade(answersJson);
+    }
+
+    @Benchmark
+    public int answerCodes() {
+        return answerKey.grade(answerCodes);
+    }
+
+    @Benchmark
+    public int legacy() throws JsonProcessingException {
+        Map<String, String> userAnswers = objectMapper.readValue(answersJson, ANSWERS_TYPE);
+        int totalScore = 0;
+        for (Question question : questions) {
+            String userAnswer = userAnswers.get(question.getId().toString());
+            if (userAnswer != null && userAnswer.equalsIgnoreCase(question.getAnswer())) {
+                totalScore += question.getScore();
+            }
+        }
+        return totalScore;
+    }
+}
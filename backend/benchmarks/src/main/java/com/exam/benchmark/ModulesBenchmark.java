@@ -0,0 +1,80 @@
+package com.exam.benchmark;
+
+import com.exam.cache.ModuleCatalog;
+import com.exam.cache.QuestionCache;
+import com.exam.entity.Question;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getModules 聚合：
+ * legacyScan 为原实现在内存中逐题分组计数并排序（不含把全表读入内存的数据库开销）；
+ * catalogList 为当前模块目录的读取；catalogRebuild 为由题库快照重建目录（快照重新加载时触发）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ModulesBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int bankSize;
+
+    private List<Question> questions;
+    private ModuleCatalog moduleCatalog;
+
+    @Setup
+    public void setup() {
+        questions = SyntheticBank.questions(bankSize, 42);
+        moduleCatalog = new ModuleCatalog(new QuestionCache(SyntheticBank.mapper(questions)));
+        moduleCatalog.onReloaded(questions);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> legacyScan() {
+        Map<String, Integer> moduleCount = new HashMap<>();
+        for (Question q : questions) {
+            String module = q.getAnalysis();
+            if (module != null && !module.isEmpty()) {
+                moduleCount.merge(module, 1, Integer::sum);
+            }
+        }
+        List<Map<String, Object>> modules = new ArrayList<>();
+        moduleCount.forEach((name, count) -> {
+            Map<String, Object> module = new HashMap<>();
+            module.put("name", name);
+            module.put("count", count);
+            modules.add(module);
+        });
+        modules.sort((a, b) -> ((String) a.get("name")).compareTo((String) b.get("name")));
+        return modules;
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> catalogList() {
+        return moduleCatalog.list();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> catalogRebuild() {
+        moduleCatalog.onReloaded(questions);
+        return moduleCatalog.list();
+    }
+}
@@ -0,0 +1,75 @@
+package com.exam.benchmark;
+
+import com.exam.cache.QuestionCache;
+import com.exam.entity.Question;
+import com.exam.util.IdListUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QuestionService.getQuestionsByIds 的ID处理：
+ * legacySplit 为原实现的 split 后逐个转 Long；idListUtil 为当前的单遍解析（去重、跳过非法项）；
+ * cacheGetAll 为解析后从10万题的内存快照按顺序取题。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuestionIdsBenchmark {
+
+    private static final int BANK_SIZE = 100_000;
+
+    @Param({"20", "100", "1000"})
+    private int idCount;
+
+    private String questionIds;
+    private QuestionCache questionCache;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        StringJoiner joiner = new StringJoiner(",");
+        for (int i = 0; i < idCount; i++) {
+            joiner.add(String.valueOf(1 + random.nextInt(BANK_SIZE)));
+        }
+        questionIds = joiner.toString();
+        questionCache = new QuestionCache(SyntheticBank.mapper(SyntheticBank.questions(BANK_SIZE, 42)));
+        questionCache.reload();
+    }
+
+    @Benchmark
+    public List<Long> legacySplit() {
+        List<Long> ids = new ArrayList<>();
+        for (String id : questionIds.split(",")) {
+            ids.add(Long.valueOf(id));
+        }
+        return ids;
+    }
+
+    @Benchmark
+    public long[] idListUtil() {
+        return IdListUtil.parse(questionIds);
+    }
+
+    @Benchmark
+    public List<Question> cacheGetAll() {
+        return questionCache.getAll(IdListUtil.parse(questionIds));
+    }
+}
@@ -0,0 +1,72 @@
+package com.exam.benchmark;
+
+import com.exam.entity.Question;
+import com.exam.mapper.QuestionMapper;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试用的合成题库（固定随机种子，结果可复现）
+ */
+final class SyntheticBank {
+
+    static final int MODULES = 20;
+    private static final String[] LETTERS = {"A", "B", "C", "D"};
+
+    private SyntheticBank() {
+    }
+
+    // ID 从1开始连续递增，分值2~5，答案A~D，analysis 为 "模块1".."模块20"
+    static List<Question> questions(int count, long seed) {
+        Random random = new Random(seed);
+        List<Question> questions = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Question question = new Question();
+            question.setId((long) i);
+            question.setType(random.nextInt(4) == 0 ? 2 : 1);
+            question.setContent("题目内容 " + i);
+            question.setOptionA("选项A");
+            question.setOptionB("选项B");
+            question.setOptionC("选项C");
+            question.setOptionD("选项D");
+            question.setAnswer(question.getType() == 2 ? LETTERS[random.nextInt(2)] : LETTERS[random.nextInt(4)]);
+            question.setScore(2 + random.nextInt(4));
+            question.setAnalysis("模块" + (1 + random.nextInt(MODULES)));
+            questions.add(question);
+        }
+        return questions;
+    }
+
+    // 作答JSON：按比例作答，其中约一半答对
+    static String answersJson(List<Question> questions, int answeredPercent, long seed) {
+        Random random = new Random(seed);
+        StringBuilder json = new StringBuilder("{");
+        for (Question question : questions) {
+            if (random.nextInt(100) >= answeredPercent) {
+                continue;
+            }
+            String answer = random.nextBoolean() ? question.getAnswer() : LETTERS[random.nextInt(4)];
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append('"').append(question.getId()).append("\":\"").append(answer).append('"');
+        }
+        return json.append('}').toString();
+    }
+
+    // 只实现基准用到的查询，其余方法返回空值
+    static QuestionMapper mapper(List<Question> questions) {
+        return (QuestionMapper) Proxy.newProxyInstance(QuestionMapper.class.getClassLoader(),
+                new Class<?>[]{QuestionMapper.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "selectList" -> new ArrayList<>(questions);
+                    case "selectBatchIds" -> List.of();
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "SyntheticQuestionMapper";
+                    default -> null;
+                });
+    }
+}
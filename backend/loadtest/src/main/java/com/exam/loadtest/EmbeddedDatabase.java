@@ -0,0 +1,147 @@
+package com.exam.loadtest;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+/**
+ * 内嵌 H2（MySQL 兼容模式）数据库：执行 sql/init.sql 建表和初始数据，再写入合成的学生、题目和一份试卷
+ */
+final class EmbeddedDatabase {
+
+    static final String URL = "jdbc:h2:mem:exam_db;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+            + "CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = URL.replace("mem:exam_db;", "mem:exam_db_replica;");
+    private static final String[] LETTERS = {"A", "B", "C", "D"};
+
+    private EmbeddedDatabase() {
+    }
+
+    // 返回压测使用的试卷ID；相同参数写入的数据相同，可用于建从库
+    static long seed(String url, LoadTestOptions options) throws SQLException, IOException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            runInitScript(connection);
+            connection.setAutoCommit(false);
+            insertStudents(connection, options);
+            long firstQuestion = insertQuestions(connection, options);
+            long paperId = insertPaper(connection, options, firstQuestion);
+            connection.commit();
+            return paperId;
+        }
+    }
+
+    static String username(int index) {
+        return String.format("lt%05d", index);
+    }
+
+    // 去掉 CREATE DATABASE / USE，按语句末尾的分号拆分执行
+    private static void runInitScript(Connection connection) throws IOException, SQLException {
+        String script;
+        try (InputStream input = EmbeddedDatabase.class.getClassLoader().getResourceAsStream("sql/init.sql")) {
+            if (input == null) {
+                throw new IllegalStateException("classpath 中找不到 sql/init.sql");
+            }
+            script = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        StringBuilder statement = new StringBuilder();
+        try (Statement stmt = connection.createStatement()) {
+            for (String line : script.split("\n")) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("--")
+                        || trimmed.toUpperCase().startsWith("CREATE DATABASE") || trimmed.toUpperCase().startsWith("USE ")) {
+                    continue;
+                }
+                statement.append(line).append('\n');
+                if (trimmed.endsWith(";")) {
+                    stmt.execute(statement.substring(0, statement.lastIndexOf(";")));
+                    statement.setLength(0);
+                }
+            }
+        }
+    }
+
+    private static void insertStudents(Connection connection, LoadTestOptions options) throws SQLException {
+        // 所有学生使用同一个密码哈希，登录时仍按配置强度逐个校验
+        String hash = new BCryptPasswordEncoder(options.bcryptStrength).encode(options.password);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO t_user (username, password, real_name, role, status) VALUES (?, ?, ?, 2, 1)")) {
+            for (int i = 0; i < options.students; i++) {
+                insert.setString(1, username(i));
+                insert.setString(2, hash);
+                insert.setString(3, "压测学生" + i);
+                insert.addBatch();
+                if (i % 1000 == 999) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private static long insertQuestions(Connection connection, LoadTestOptions options) throws SQLException {
+        Random random = new Random(options.seed);
+        long first;
+        try (Statement stmt = connection.createStatement();
+             var rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM t_question")) {
+            rs.next();
+            first = rs.getLong(1);
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO t_question (content, type, option_a, option_b, option_c, option_d, answer, score, "
+                        + "analysis, create_by) VALUES (?, 1, ?, ?, ?, ?, ?, ?, ?, 1)")) {
+            for (int i = 0; i < options.questions; i++) {
+                insert.setString(1, "压测题目 " + i + "：下列说法正确的是？");
+                insert.setString(2, "选项A" + i);
+                insert.setString(3, "选项B" + i);
+                insert.setString(4, "选项C" + i);
+                insert.setString(5, "选项D" + i);
+                insert.setString(6, LETTERS[random.nextInt(4)]);
+                insert.setInt(7, 2);
+                insert.setString(8, "模块" + (1 + random.nextInt(20)));
+                insert.addBatch();
+                if (i % 1000 == 999) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        return first;
+    }
+
+    private static long insertPaper(Connection connection, LoadTestOptions options, long firstQuestion)
+            throws SQLException {
+        int count = Math.min(options.paperQuestions, options.questions);
+        long paperId;
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO t_paper (title, total_score, duration, create_by, status) VALUES (?, ?, ?, 1, 1)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            insert.setString(1, "压测试卷");
+            insert.setInt(2, count * 2);
+            insert.setInt(3, Math.max(1, options.examSeconds / 60));
+            insert.executeUpdate();
+            try (var keys = insert.getGeneratedKeys()) {
+                keys.next();
+                paperId = keys.getLong(1);
+            }
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO t_paper_question (paper_id, question_id, seq) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < count; i++) {
+                insert.setLong(1, paperId);
+                insert.setLong(2, firstQuestion + i);
+                insert.setInt(3, i);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        return paperId;
+    }
+}
@@ -0,0 +1,73 @@
+package com.exam.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个接口的请求统计：状态码分布、延迟分位数和每秒请求数
+ */
+final class EndpointStats {
+
+    final String name;
+    private final long startNanos;
+    private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    // 按完成时刻所在的秒计数，用于计算峰值吞吐
+    private final Map<Long, LongAdder> perSecond = new ConcurrentHashMap<>();
+    private final LongAdder failures = new LongAdder();
+    private long[] latencies = new long[1024];
+    private int size;
+
+    EndpointStats(String name, long startNanos) {
+        this.name = name;
+        this.startNanos = startNanos;
+    }
+
+    // status 为 0 表示连接失败或超时
+    void record(int status, long latencyNanos) {
+        long now = System.nanoTime();
+        statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+        perSecond.computeIfAbsent((now - startNanos) / 1_000_000_000L, key -> new LongAdder()).increment();
+        if (status == 0 || status >= 400 && status != 503) {
+            failures.increment();
+        }
+        synchronized (this) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latencyNanos;
+        }
+    }
+
+    Snapshot snapshot(double elapsedSeconds) {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(latencies, size);
+        }
+        Arrays.sort(sorted);
+        Map<Integer, Long> codes = new TreeMap<>();
+        statuses.forEach((code, count) -> codes.put(code, count.sum()));
+        long peak = perSecond.values().stream().mapToLong(LongAdder::sum).max().orElse(0);
+        return new Snapshot(name, sorted.length, failures.sum(), codes.getOrDefault(503, 0L), codes,
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1_000_000.0,
+                elapsedSeconds > 0 ? sorted.length / elapsedSeconds : 0, peak);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    /**
+     * 统计快照，延迟单位毫秒
+     */
+    record Snapshot(String name, long count, long errors, long rejected, Map<Integer, Long> statuses,
+                    double p50, double p90, double p99, double max, double throughput, long peakPerSecond) {
+    }
+}
@@ -0,0 +1,512 @@
+package com.exam.loadtest;
+
+import com.exam.ExamApplication;
+import com.exam.config.DataSourceRouting;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 考试场景压测：模拟学生按到达曲线登录、开始考试、拉取试卷、定时自动保存，并在截止前集中交卷。
+ * 默认在进程内以 H2（MySQL 兼容模式）启动应用并写入合成数据，也可通过 --base-url 压测已运行的服务。
+ * 运行：mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--students=500 --arrival=ramp"
+ */
+public final class LoadTest {
+
+    private static final String[] LETTERS = {"A", "B", "C", "D"};
+
+    private final LoadTestOptions options;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "loadtest-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, EndpointStats> endpoints = new LinkedHashMap<>();
+    private final Map<String, LongAdder> failedStages = new ConcurrentHashMap<>();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder scoreSum = new LongAdder();
+    private final LongAdder staleReads = new LongAdder();
+    private final LongAdder duplicateSubmits = new LongAdder();
+    private final LongAdder conflictingSubmits = new LongAdder();
+    private Supplier<Map<String, Object>> dataSourceStats;
+    private final long startNanos = System.nanoTime();
+    private String baseUrl;
+    private long paperId;
+
+    private LoadTest(LoadTestOptions options) {
+        this.options = options;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        for (String name : List.of("login", "start", "paper", "questions", "autosave", "submit", "result", "records")) {
+            endpoints.put(name, new EndpointStats(name, startNanos));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        ConfigurableApplicationContext context = null;
+        LoadTest test = new LoadTest(options);
+        try {
+            if (options.baseUrl == null) {
+                test.paperId = EmbeddedDatabase.seed(EmbeddedDatabase.URL, options);
+                if (options.replica) {
+                    EmbeddedDatabase.seed(EmbeddedDatabase.REPLICA_URL, options);
+                }
+                context = startApplication(options);
+                if (options.replica) {
+                    test.dataSourceStats = context.getBean(DataSourceRouting.class)::stats;
+                }
+                test.baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            } else {
+                test.baseUrl = options.baseUrl.replaceAll("/+$", "");
+                test.paperId = options.paperId;
+            }
+            System.out.println("压测参数: " + options.describe());
+            String report = test.run();
+            System.out.println(report);
+            Path path = Path.of(options.report != null ? options.report : "loadtest/results/latest.md");
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Files.writeString(path, report, StandardCharsets.UTF_8);
+            System.out.println("报告已写入 " + path.toAbsolutePath());
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(LoadTestOptions options) {
+        List<String> args = new ArrayList<>();
+        args.add("--server.port=0");
+        args.add("--spring.datasource.url=" + EmbeddedDatabase.URL);
+        args.add("--spring.datasource.driver-class-name=org.h2.Driver");
+        args.add("--spring.datasource.username=sa");
+        args.add("--spring.datasource.password=");
+        args.add("--exam.login.bcrypt-strength=" + options.bcryptStrength);
+        if (options.replica) {
+            args.add("--exam.datasource.replica.enabled=true");
+            args.add("--exam.datasource.replica.url=" + EmbeddedDatabase.REPLICA_URL);
+        }
+        args.add("--logging.level.root=WARN");
+        // 同名参数会被 Spring 用逗号拼接，命令行中指定的参数替换默认值
+        for (String arg : options.appArgs) {
+            String prefix = arg.substring(0, arg.indexOf('=') + 1);
+            args.removeIf(existing -> existing.startsWith(prefix));
+            args.add(arg);
+        }
+        return SpringApplication.run(ExamApplication.class, args.toArray(new String[0]));
+    }
+
+    private String run() {
+        long[] arrivals = arrivalOffsets();
+        Random random = new Random(options.seed);
+        long deadline = options.examSeconds * 1000L;
+        List<CompletableFuture<Void>> students = new ArrayList<>(options.students);
+        for (int i = 0; i < options.students; i++) {
+            long arrival = arrivals[i];
+            long submitAt;
+            if (random.nextDouble() < options.earlySubmit) {
+                // 提前交卷：到达后至集中交卷窗口之前的任意时刻
+                long latest = Math.max(arrival + 1000, deadline - options.spikeSeconds * 1000L);
+                submitAt = arrival + (long) (random.nextDouble() * (latest - arrival));
+            } else {
+                submitAt = deadline - (long) (random.nextDouble() * options.spikeSeconds * 1000L);
+            }
+            Student student = new Student(EmbeddedDatabase.username(i), submitAt, new Random(random.nextLong()));
+            students.add(delay(arrival).thenCompose(ignored -> student.run()).handle((ignored, error) -> {
+                if (error == null) {
+                    completed.increment();
+                }
+                return null;
+            }));
+        }
+        try {
+            CompletableFuture.allOf(students.toArray(new CompletableFuture[0]))
+                    .get(deadline + 120_000L, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            failedStages.computeIfAbsent("timeout", key -> new LongAdder()).add(
+                    students.stream().filter(future -> !future.isDone()).count());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return report((System.nanoTime() - startNanos) / 1e9);
+    }
+
+    // 各学生相对压测开始的到达时刻（毫秒）
+    private long[] arrivalOffsets() {
+        int n = options.students;
+        long window = options.arrivalSeconds * 1000L;
+        long[] offsets = new long[n];
+        Random random = new Random(options.seed ^ 0x5DEECE66DL);
+        double poissonClock = 0;
+        for (int i = 0; i < n; i++) {
+            double fraction = (double) i / n;
+            offsets[i] = switch (options.arrival) {
+                case "burst" -> 0;
+                // 到达速率随时间线性增长，累计到达数与时间平方成正比
+                case "ramp" -> (long) (window * Math.sqrt(fraction));
+                case "poisson" -> {
+                    poissonClock += -Math.log(1 - random.nextDouble()) * window / n;
+                    yield Math.min(window, (long) poissonClock);
+                }
+                default -> (long) (window * fraction);
+            };
+        }
+        return offsets;
+    }
+
+    private CompletableFuture<Void> delay(long offsetMillis) {
+        long wait = offsetMillis - (System.nanoTime() - startNanos) / 1_000_000;
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        timer.schedule(() -> future.complete(null), Math.max(0, wait), TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> send(String endpoint, HttpRequest request) {
+        EndpointStats stats = endpoints.get(endpoint);
+        long begin = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).handle((response, error) -> {
+            stats.record(error == null ? response.statusCode() : 0, System.nanoTime() - begin);
+            if (error != null) {
+                throw new CompletionException(new StageFailure(endpoint, error.toString()));
+            }
+            return response;
+        });
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(60));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    private JsonNode json(String endpoint, HttpResponse<byte[]> response) {
+        if (response.statusCode() / 100 != 2) {
+            throw new CompletionException(new StageFailure(endpoint, "HTTP " + response.statusCode()));
+        }
+        try {
+            byte[] body = response.body();
+            if (response.headers().firstValue("Content-Encoding").filter("gzip"::equals).isPresent()) {
+                try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                    body = in.readAllBytes();
+                }
+            }
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private HttpRequest.BodyPublisher body(Object value) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(value));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String report(double elapsedSeconds) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# 考试场景压测报告\n\n");
+        sb.append("- 时间: ").append(LocalDateTime.now().withNano(0)).append('\n');
+        sb.append("- 环境: JDK ").append(Runtime.version()).append(", ")
+                .append(Runtime.getRuntime().availableProcessors()).append(" CPU, ")
+                .append(options.baseUrl == null ? "内嵌应用 + H2" : options.baseUrl).append('\n');
+        sb.append("- 参数: ").append(options.describe()).append('\n');
+        sb.append(String.format("- 耗时: %.1fs，完成 %d/%d 名学生", elapsedSeconds, completed.sum(), options.students));
+        if (completed.sum() > 0) {
+            sb.append(String.format("，平均分 %.1f", (double) scoreSum.sum() / completed.sum()));
+        }
+        sb.append('\n');
+        if (dataSourceStats != null) {
+            sb.append("- 读写分离: 交卷后读到旧记录 ").append(staleReads.sum()).append(" 次，")
+                    .append(dataSourceStats.get()).append('\n');
+        }
+        if (options.submitRetries > 0) {
+            sb.append("- 重复交卷: 重发 ").append(completed.sum() * options.submitRetries).append(" 次，返回已提交结果 ")
+                    .append(duplicateSubmits.sum()).append(" 次，同一学生多次评分或分数不一致 ")
+                    .append(conflictingSubmits.sum()).append(" 人\n");
+        }
+        if (!failedStages.isEmpty()) {
+            sb.append("- 失败: ");
+            failedStages.forEach((stage, count) -> sb.append(stage).append('=').append(count.sum()).append(' '));
+            sb.append('\n');
+        }
+        sb.append("\n| 接口 | 请求数 | 错误 | 503 | p50 (ms) | p90 (ms) | p99 (ms) | max (ms) | 平均 req/s | 峰值 req/s | 状态码 |\n");
+        sb.append("|------|-------:|-----:|----:|---------:|---------:|---------:|---------:|-----------:|-----------:|--------|\n");
+        for (EndpointStats stats : endpoints.values()) {
+            EndpointStats.Snapshot s = stats.snapshot(elapsedSeconds);
+            if (s.count() == 0) {
+                continue;
+            }
+            sb.append(String.format("| %s | %d | %d | %d | %.1f | %.1f | %.1f | %.1f | %.1f | %d | %s |%n",
+                    s.name(), s.count(), s.errors(), s.rejected(), s.p50(), s.p90(), s.p99(), s.max(),
+                    s.throughput(), s.peakPerSecond(), s.statuses()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 某一步请求失败，学生流程中止
+     */
+    private static final class StageFailure extends RuntimeException {
+        StageFailure(String stage, String message) {
+            super(stage + ": " + message, null, false, false);
+        }
+    }
+
+    /**
+     * 单个学生的考试流程
+     */
+    private final class Student {
+        private final String username;
+        private final long submitAt;
+        private final Random random;
+        private String token;
+        private long recordId;
+        private List<Long> questionIds;
+        private final Map<String, String> answers = new LinkedHashMap<>();
+        private int saved;
+        private long answeringFrom;
+
+        Student(String username, long submitAt, Random random) {
+            this.username = username;
+            this.submitAt = submitAt;
+            this.random = random;
+        }
+
+        CompletableFuture<Void> run() {
+            return login()
+                    .thenCompose(ignored -> start())
+                    .thenCompose(ignored -> loadPaper())
+                    .thenCompose(ignored -> answerUntilSubmit())
+                    .thenCompose(ignored -> submit())
+                    .thenCompose(ignored -> options.replica ? records() : CompletableFuture.completedFuture(null))
+                    .whenComplete((ignored, error) -> {
+                        if (error != null) {
+                            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                    ? error.getCause() : error;
+                            String stage = cause instanceof StageFailure ? cause.getMessage() : cause.toString();
+                            failedStages.computeIfAbsent(stage, key -> new LongAdder()).increment();
+                        }
+                    });
+        }
+
+        // 哈希线程池饱和返回503时按 Retry-After 重试
+        private CompletableFuture<Void> login() {
+            Map<String, String> params = Map.of("username", username, "password", options.password);
+            HttpRequest request = request("/api/auth/login", null)
+                    .header("Content-Type", "application/json")
+                    .POST(body(params))
+                    .build();
+            return send("login", request).thenCompose(response -> {
+                if (response.statusCode() == 503) {
+                    long retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(1);
+                    long jitter = random.nextInt(1000);
+                    return delay(elapsedMillis() + retryAfter * 1000 + jitter).thenCompose(ignored -> login());
+                }
+                token = json("login", response).path("token").asText(null);
+                if (token == null) {
+                    throw new CompletionException(new StageFailure("login", "响应中没有token"));
+                }
+                return CompletableFuture.completedFuture(null);
+            });
+        }
+
+        private CompletableFuture<Void> start() {
+            HttpRequest request = request("/api/exam-records/start", token)
+                    .header("Content-Type", "application/json")
+                    .POST(body(Map.of("paperId", paperId)))
+                    .build();
+            return send("start", request).thenAccept(response ->
+                    recordId = json("start", response).path("record").path("id").asLong());
+        }
+
+        private CompletableFuture<Void> loadPaper() {
+            HttpRequest paper = request("/api/papers/" + paperId, token)
+                    .header("Accept-Encoding", "gzip")
+                    .GET()
+                    .build();
+            HttpRequest questions = request("/api/papers/" + paperId + "/questions", token)
+                    .header("Accept-Encoding", "gzip")
+                    .GET()
+                    .build();
+            return send("paper", paper)
+                    .thenAccept(response -> json("paper", response))
+                    .thenCompose(ignored -> send("questions", questions))
+                    .thenAccept(response -> {
+                        List<Long> ids = new ArrayList<>();
+                        json("questions", response).forEach(question -> ids.add(question.path("id").asLong()));
+                        if (ids.isEmpty()) {
+                            throw new CompletionException(new StageFailure("questions", "试卷没有题目"));
+                        }
+                        questionIds = ids;
+                        answeringFrom = elapsedMillis();
+                    });
+        }
+
+        // 作答均匀分布在交卷前，每个自动保存周期提交期间新增的答案
+        private CompletableFuture<Void> answerUntilSubmit() {
+            if (options.autosaveSeconds <= 0) {
+                return delay(submitAt);
+            }
+            long next = elapsedMillis() + options.autosaveSeconds * 1000L;
+            if (next >= submitAt) {
+                return delay(submitAt);
+            }
+            return delay(next).thenCompose(ignored -> autosave()).thenCompose(ignored -> answerUntilSubmit());
+        }
+
+        private CompletableFuture<Void> autosave() {
+            long now = elapsedMillis();
+            double progress = (double) (now - answeringFrom) / Math.max(1, submitAt - answeringFrom);
+            int target = (int) Math.min(questionIds.size(), Math.ceil(questionIds.size() * progress));
+            Map<String, String> delta = new LinkedHashMap<>();
+            for (int i = saved; i < target; i++) {
+                String answer = LETTERS[random.nextInt(LETTERS.length)];
+                answers.put(String.valueOf(questionIds.get(i)), answer);
+                delta.put(String.valueOf(questionIds.get(i)), answer);
+            }
+            saved = target;
+            if (delta.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            HttpRequest request = request("/api/exam-records/" + recordId + "/answers", token)
+                    .header("Content-Type", "application/json")
+                    .PUT(body(Map.of("answers", delta)))
+                    .build();
+            return send("autosave", request).thenAccept(response -> json("autosave", response));
+        }
+
+        private CompletableFuture<Void> submit() {
+            for (Long questionId : questionIds) {
+                answers.computeIfAbsent(String.valueOf(questionId), key -> LETTERS[random.nextInt(LETTERS.length)]);
+            }
+            String answersJson;
+            try {
+                answersJson = objectMapper.writeValueAsString(answers);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            HttpRequest request = request("/api/exam-records/" + recordId + "/submit"
+                    + (options.asyncSubmit ? "?async=true" : ""), token)
+                    .header("Content-Type", "application/json")
+                    .header("Idempotency-Key", Long.toHexString(random.nextLong()))
+                    .POST(body(Map.of("answers", answersJson)))
+                    .build();
+            List<CompletableFuture<JsonNode>> attempts = new ArrayList<>();
+            for (int i = 0; i <= options.submitRetries; i++) {
+                attempts.add(send("submit", request).thenApply(response -> json("submit", response)));
+            }
+            return CompletableFuture.allOf(attempts.toArray(new CompletableFuture[0])).thenCompose(ignored -> {
+                JsonNode result = attempts.get(0).join();
+                if (options.submitRetries > 0) {
+                    checkDuplicates(attempts);
+                }
+                if (options.asyncSubmit) {
+                    return pollResult(0);
+                }
+                scoreSum.add(result.path("score").asLong());
+                return CompletableFuture.completedFuture(null);
+            });
+        }
+
+        // 同一次交卷的多个请求应只有一个实际评分，其余返回相同的已提交结果
+        private void checkDuplicates(List<CompletableFuture<JsonNode>> attempts) {
+            int graded = 0;
+            boolean sameScore = true;
+            JsonNode first = attempts.get(0).join();
+            for (CompletableFuture<JsonNode> attempt : attempts) {
+                JsonNode result = attempt.join();
+                if (result.path("duplicate").asBoolean()) {
+                    duplicateSubmits.increment();
+                } else {
+                    graded++;
+                }
+                if (!options.asyncSubmit && result.path("score").asLong() != first.path("score").asLong()) {
+                    sameScore = false;
+                }
+            }
+            if (graded != 1 || !sameScore) {
+                conflictingSubmits.increment();
+            }
+        }
+
+        // 交卷后立即查询本人的考试记录，从库没有复制数据，读到未交卷或缺失说明没有粘滞到主库
+        private CompletableFuture<Void> records() {
+            HttpRequest request = request("/api/exam-records?limit=10", token).GET().build();
+            return send("records", request).thenAccept(response -> {
+                boolean submitted = false;
+                for (JsonNode record : json("records", response).path("list")) {
+                    if (record.path("id").asLong() == recordId && record.path("status").asInt() != 0) {
+                        submitted = true;
+                    }
+                }
+                if (!submitted) {
+                    staleReads.increment();
+                }
+            });
+        }
+
+        // 异步评分时轮询结果，最多等待60秒
+        private CompletableFuture<Void> pollResult(int attempt) {
+            if (attempt >= 120) {
+                return CompletableFuture.failedFuture(new StageFailure("result", "评分超时"));
+            }
+            HttpRequest request = request("/api/exam-records/" + recordId + "/result", token).GET().build();
+            return delay(elapsedMillis() + 500)
+                    .thenCompose(ignored -> send("result", request))
+                    .thenCompose(response -> {
+                        JsonNode result = json("result", response);
+                        if (result.path("score").isMissingNode() || result.path("score").isNull()) {
+                            return pollResult(attempt + 1);
+                        }
+                        scoreSum.add(result.path("score").asLong());
+                        return CompletableFuture.completedFuture(null);
+                    });
+        }
+
+        private long elapsedMillis() {
+            return (System.nanoTime() - startNanos) / 1_000_000;
+        }
+    }
+}
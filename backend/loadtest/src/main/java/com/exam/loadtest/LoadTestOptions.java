@@ -0,0 +1,110 @@
+package com.exam.loadtest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 压测参数，命令行形式 --name=value；未识别的参数（如 --spring.profiles.active=vt）原样传给被测应用
+ */
+final class LoadTestOptions {
+
+    // 模拟学生数
+    int students = 500;
+    // 到达曲线：uniform（匀速）、ramp（线性加速）、burst（同时到达）、poisson（泊松到达）
+    String arrival = "uniform";
+    // 所有学生在该时间窗口内到达（登录）
+    int arrivalSeconds = 20;
+    // 从压测开始到交卷截止的秒数
+    int examSeconds = 60;
+    // 截止前集中交卷的时间窗口
+    int spikeSeconds = 5;
+    // 提前交卷的学生比例，其余在截止前的 spikeSeconds 内交卷
+    double earlySubmit = 0.1;
+    // 自动保存间隔，0 表示不自动保存
+    int autosaveSeconds = 10;
+    boolean asyncSubmit = false;
+    // 每名学生交卷时额外并发重发的次数（同一个 Idempotency-Key），模拟客户端超时重试
+    int submitRetries = 0;
+    // 读写分离：再建一个 H2 库作为从库（不复制数据），交卷后查询本人记录以检查读己之写
+    boolean replica = false;
+    // 合成题库规模与试卷题量
+    int questions = 2000;
+    int paperQuestions = 50;
+    // 非空时直接压测已运行的服务（需事先导入同样的合成数据），不启动内嵌应用
+    String baseUrl;
+    // 压测已运行的服务时使用的试卷ID
+    long paperId;
+    String password = "student123";
+    int bcryptStrength = 10;
+    long seed = 42;
+    String report;
+
+    final List<String> appArgs = new ArrayList<>();
+
+    static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("参数格式应为 --name=value: " + arg);
+            }
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        options.students = intOption(values, "students", options.students);
+        options.arrival = stringOption(values, "arrival", options.arrival);
+        options.arrivalSeconds = intOption(values, "arrival-seconds", options.arrivalSeconds);
+        options.examSeconds = intOption(values, "exam-seconds", options.examSeconds);
+        options.spikeSeconds = intOption(values, "spike-seconds", options.spikeSeconds);
+        options.earlySubmit = Double.parseDouble(stringOption(values, "early-submit", String.valueOf(options.earlySubmit)));
+        options.autosaveSeconds = intOption(values, "autosave-seconds", options.autosaveSeconds);
+        options.asyncSubmit = Boolean.parseBoolean(stringOption(values, "async-submit", "false"));
+        options.submitRetries = intOption(values, "submit-retries", options.submitRetries);
+        options.replica = Boolean.parseBoolean(stringOption(values, "replica", "false"));
+        options.questions = intOption(values, "questions", options.questions);
+        options.paperQuestions = intOption(values, "paper-questions", options.paperQuestions);
+        options.baseUrl = stringOption(values, "base-url", null);
+        options.paperId = Long.parseLong(stringOption(values, "paper-id", "0"));
+        options.password = stringOption(values, "password", options.password);
+        options.bcryptStrength = intOption(values, "bcrypt-strength", options.bcryptStrength);
+        options.seed = Long.parseLong(stringOption(values, "seed", String.valueOf(options.seed)));
+        options.report = stringOption(values, "report", null);
+        // 剩余参数交给 Spring
+        values.forEach((name, value) -> options.appArgs.add("--" + name + "=" + value));
+        if (!List.of("uniform", "ramp", "burst", "poisson").contains(options.arrival)) {
+            throw new IllegalArgumentException("未知的到达曲线: " + options.arrival);
+        }
+        if (options.examSeconds <= options.arrivalSeconds) {
+            throw new IllegalArgumentException("exam-seconds 必须大于 arrival-seconds");
+        }
+        if (options.replica && options.baseUrl != null) {
+            throw new IllegalArgumentException("replica 只用于内嵌应用");
+        }
+        if (options.baseUrl != null && options.paperId <= 0) {
+            throw new IllegalArgumentException("使用 base-url 时需要指定 paper-id");
+        }
+        return options;
+    }
+
+    String describe() {
+        return "students=" + students + ", arrival=" + arrival + " over " + arrivalSeconds + "s"
+                + ", deadline=" + examSeconds + "s, spike=" + spikeSeconds + "s, earlySubmit=" + earlySubmit
+                + ", autosave=" + (autosaveSeconds > 0 ? autosaveSeconds + "s" : "off")
+                + ", submit=" + (asyncSubmit ? "async" : "sync")
+                + (submitRetries > 0 ? ", submitRetries=" + submitRetries : "") + (replica ? ", replica" : "")
+                + ", questions=" + questions + ", paperQuestions=" + paperQuestions
+                + (appArgs.isEmpty() ? "" : ", app " + String.join(" ", appArgs));
+    }
+
+    private static int intOption(Map<String, String> values, String name, int defaultValue) {
+        String value = values.remove(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static String stringOption(Map<String, String> values, String name, String defaultValue) {
+        String value = values.remove(name);
+        return value == null ? defaultValue : value;
+    }
+}
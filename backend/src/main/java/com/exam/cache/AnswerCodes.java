@@ -0,0 +1,85 @@
+package com.exam.cache;
+
+/**
+ * 作答的紧凑二进制编码
+ * 每题3位，按题目在试卷中的位置排列：0-未作答，1~4-A~D，5-T，6-F，7保留。
+ * 前5字节为头部：格式版本和试卷题目布局指纹，解码时布局不一致则拒绝解释。
+ */
+public final class AnswerCodes {
+
+    public static final int UNANSWERED = 0;
+
+    private static final byte VERSION = 1;
+    private static final int HEADER = 5;
+    private static final int BITS = 3;
+    private static final String[] SYMBOLS = {null, "A", "B", "C", "D", "T", "F"};
+
+    private AnswerCodes() {
+    }
+
+    // 单个答案（不区分大小写）转编码，多选或其他内容无法编码时返回-1
+    public static int code(char[] buf, int offset, int length) {
+        if (length != 1) {
+            return -1;
+        }
+        switch (Character.toUpperCase(buf[offset])) {
+            case 'A': return 1;
+            case 'B': return 2;
+            case 'C': return 3;
+            case 'D': return 4;
+            case 'T': return 5;
+            case 'F': return 6;
+            default: return -1;
+        }
+    }
+
+    public static String symbol(int code) {
+        return code > 0 && code < SYMBOLS.length ? SYMBOLS[code] : null;
+    }
+
+    static byte[] allocate(int fingerprint, int size) {
+        byte[] codes = new byte[HEADER + (size * BITS + 7) / 8];
+        codes[0] = VERSION;
+        codes[1] = (byte) (fingerprint >>> 24);
+        codes[2] = (byte) (fingerprint >>> 16);
+        codes[3] = (byte) (fingerprint >>> 8);
+        codes[4] = (byte) fingerprint;
+        return codes;
+    }
+
+    // 是否为当前格式且布局指纹一致
+    static boolean matches(byte[] codes, int fingerprint, int size) {
+        return codes != null && codes.length == HEADER + (size * BITS + 7) / 8 && codes[0] == VERSION
+                && fingerprint(codes) == fingerprint;
+    }
+
+    // 头部记录的布局指纹，调用方需保证长度不小于头部
+    static int fingerprint(byte[] codes) {
+        return (codes[1] & 0xFF) << 24 | (codes[2] & 0xFF) << 16 | (codes[3] & 0xFF) << 8 | codes[4] & 0xFF;
+    }
+
+    // 按头部指纹查找编码所用布局时的键，格式不符返回null
+    static Integer layoutFingerprint(byte[] codes) {
+        return codes != null && codes.length >= HEADER && codes[0] == VERSION ? fingerprint(codes) : null;
+    }
+
+    static void set(byte[] codes, int position, int code) {
+        int bit = position * BITS;
+        int index = HEADER + (bit >>> 3);
+        int shift = bit & 7;
+        int mask = 7 << shift;
+        int window = (codes[index] & 0xFF) | (index + 1 < codes.length ? (codes[index + 1] & 0xFF) << 8 : 0);
+        window = (window & ~mask) | (code << shift);
+        codes[index] = (byte) window;
+        if (index + 1 < codes.length) {
+            codes[index + 1] = (byte) (window >>> 8);
+        }
+    }
+
+    static int get(byte[] codes, int position) {
+        int bit = position * BITS;
+        int index = HEADER + (bit >>> 3);
+        int window = (codes[index] & 0xFF) | (index + 1 < codes.length ? (codes[index + 1] & 0xFF) << 8 : 0);
+        return (window >>> (bit & 7)) & 7;
+    }
+}
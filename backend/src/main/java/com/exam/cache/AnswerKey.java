@@ -0,0 +1,242 @@
+package com.exam.cache;
+
+import com.exam.entity.Question;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 编译后的试卷答案
+ * 题目ID、标准答案（选项位掩码）和分值都保存在基本类型数组中，评分时流式读取答案JSON，
+ * 不回源数据库，也不构造中间Map；二进制作答按试卷题目布局逐位置比较编码。
+ * 只有单个字母的标准答案编译为掩码，多字母答案与原先一致按字符串比较（不区分大小写）。
+ */
+public final class AnswerKey {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // 答案不是单个字母时的掩码，此时退化为字符串比较
+    private static final int INVALID = -1;
+
+    private final long[] questionIds;
+    private final long[] sortedIds;
+    private final int[] sortedIndex;
+    private final int[] answerMasks;
+    private final String[] literalAnswers;
+    private final int[] scores;
+    private final int totalScore;
+    private final AnswerLayout layout;
+    // 布局位置 -> 题目下标（题目已删除时为-1），以及每道题标准答案的二进制编码（无法编码为-1）
+    private final int[] layoutIndex;
+    private final int[] answerCodes;
+
+    private AnswerKey(long[] questionIds, long[] sortedIds, int[] sortedIndex, int[] answerMasks,
+                      String[] literalAnswers, int[] scores, int totalScore,
+                      AnswerLayout layout, int[] layoutIndex, int[] answerCodes) {
+        this.questionIds = questionIds;
+        this.sortedIds = sortedIds;
+        this.sortedIndex = sortedIndex;
+        this.answerMasks = answerMasks;
+        this.literalAnswers = literalAnswers;
+        this.scores = scores;
+        this.totalScore = totalScore;
+        this.layout = layout;
+        this.layoutIndex = layoutIndex;
+        this.answerCodes = answerCodes;
+    }
+
+    // 按试卷中的题目顺序编译，题目顺序即二进制作答的布局
+    public static AnswerKey compile(List<Question> questions) {
+        return compile(questions, null);
+    }
+
+    // layout 为试卷题目布局（可能包含已删除的题目），为null时使用 questions 的顺序
+    public static AnswerKey compile(List<Question> questions, AnswerLayout layout) {
+        int n = questions.size();
+        long[] questionIds = new long[n];
+        int[] answerMasks = new int[n];
+        String[] literalAnswers = null;
+        int[] scores = new int[n];
+        int[] answerCodes = new int[n];
+        int totalScore = 0;
+        for (int i = 0; i < n; i++) {
+            Question question = questions.get(i);
+            questionIds[i] = question.getId();
+            String answer = question.getAnswer();
+            answerCodes[i] = -1;
+            if (answer == null) {
+                answerMasks[i] = INVALID;
+            } else {
+                answerCodes[i] = AnswerCodes.code(answer.toCharArray(), 0, answer.length());
+                answerMasks[i] = answer.length() == 1 ? mask(answer.toCharArray(), 0, 1) : INVALID;
+                if (answerMasks[i] == INVALID) {
+                    if (literalAnswers == null) {
+                        literalAnswers = new String[n];
+                    }
+                    literalAnswers[i] = answer;
+                }
+            }
+            scores[i] = question.getScore() == null ? 0 : question.getScore();
+            totalScore += scores[i];
+        }
+
+        // 按ID排序的索引，评分时二分查找题目位置
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(questionIds[a], questionIds[b]));
+        long[] sortedIds = new long[n];
+        int[] sortedIndex = new int[n];
+        for (int i = 0; i < n; i++) {
+            sortedIds[i] = questionIds[order[i]];
+            sortedIndex[i] = order[i];
+        }
+
+        if (layout == null) {
+            layout = new AnswerLayout(questionIds);
+        }
+        int[] layoutIndex = new int[layout.size()];
+        for (int p = 0; p < layoutIndex.length; p++) {
+            int i = Arrays.binarySearch(sortedIds, layout.questionId(p));
+            layoutIndex[p] = i >= 0 ? sortedIndex[i] : -1;
+        }
+        return new AnswerKey(questionIds, sortedIds, sortedIndex, answerMasks, literalAnswers, scores,
+                totalScore, layout, layoutIndex, answerCodes);
+    }
+
+    public int size() {
+        return questionIds.length;
+    }
+
+    public int getTotalScore() {
+        return totalScore;
+    }
+
+    public AnswerLayout getLayout() {
+        return layout;
+    }
+
+    public boolean contains(long questionId) {
+        return Arrays.binarySearch(sortedIds, questionId) >= 0;
+    }
+
+    // 题目在试卷中的位置，不存在返回-1
+    public int indexOf(long questionId) {
+        int i = Arrays.binarySearch(sortedIds, questionId);
+        return i >= 0 ? sortedIndex[i] : -1;
+    }
+
+    // 对 {"题目ID":"答案"} 格式的答案评分，JSON非法时得0分
+    public int grade(String answersJson) {
+        if (answersJson == null || answersJson.isEmpty()) {
+            return 0;
+        }
+        // 同一题重复出现时以最后一次为准，与按Map解析的行为一致
+        boolean[] correct = new boolean[questionIds.length];
+        try (JsonParser parser = JSON_FACTORY.createParser(answersJson)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return 0;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                int index = indexOf(AnswerLayout.parseId(parser.getCurrentName()));
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                }
+                if (index < 0) {
+                    continue;
+                }
+                if (value == JsonToken.VALUE_STRING || value == JsonToken.VALUE_NUMBER_INT) {
+                    correct[index] = matches(index, parser.getTextCharacters(),
+                            parser.getTextOffset(), parser.getTextLength());
+                } else {
+                    correct[index] = false;
+                }
+            }
+        } catch (IOException e) {
+            return 0;
+        }
+        int score = 0;
+        for (int i = 0; i < correct.length; i++) {
+            if (correct[i]) {
+                score += scores[i];
+            }
+        }
+        return score;
+    }
+
+    // 对二进制作答评分：逐位置读取3位编码与标准答案比较，布局不一致时得0分
+    public int grade(byte[] codes) {
+        return grade(codes, null);
+    }
+
+    // 同上，并对每道已作答且仍在试卷中的题目回调作答结果
+    public int grade(byte[] codes, ResultVisitor visitor) {
+        if (!layout.matches(codes)) {
+            return 0;
+        }
+        int score = 0;
+        for (int p = 0; p < layoutIndex.length; p++) {
+            int index = layoutIndex[p];
+            if (index < 0) {
+                continue;
+            }
+            int code = AnswerCodes.get(codes, p);
+            if (code == AnswerCodes.UNANSWERED) {
+                continue;
+            }
+            boolean correct;
+            if (answerCodes[index] >= 0) {
+                correct = code == answerCodes[index];
+            } else {
+                // 标准答案无法编码（如多选），按字母比较
+                char[] symbol = AnswerCodes.symbol(code).toCharArray();
+                correct = matches(index, symbol, 0, symbol.length);
+            }
+            if (correct) {
+                score += scores[index];
+            }
+            if (visitor != null) {
+                visitor.visit(questionIds[index], code, correct);
+            }
+        }
+        return score;
+    }
+
+    /**
+     * 逐题作答结果回调，code 为 AnswerCodes 中的选项编码
+     */
+    public interface ResultVisitor {
+        void visit(long questionId, int code, boolean correct);
+    }
+
+    private boolean matches(int index, char[] buf, int offset, int length) {
+        int expected = answerMasks[index];
+        if (expected == INVALID) {
+            String literal = literalAnswers == null ? null : literalAnswers[index];
+            return literal != null && literal.equalsIgnoreCase(new String(buf, offset, length));
+        }
+        return length == 1 && mask(buf, offset, length) == expected;
+    }
+
+    // 选项字母（不区分大小写）转位掩码：A=1, B=2, C=4 ...
+    static int mask(char[] buf, int offset, int length) {
+        int mask = 0;
+        for (int i = offset; i < offset + length; i++) {
+            char c = buf[i];
+            if (c >= 'a' && c <= 'z') {
+                c -= 'a' - 'A';
+            }
+            if (c < 'A' || c > 'Z') {
+                return INVALID;
+            }
+            mask |= 1 << (c - 'A');
+        }
+        return mask;
+    }
+}
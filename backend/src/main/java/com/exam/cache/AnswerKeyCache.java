@@ -0,0 +1,151 @@
+package com.exam.cache;
+
+import com.exam.entity.Paper;
+import com.exam.mapper.PaperMapper;
+import com.exam.service.PaperQuestionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 试卷答案缓存
+ * 每份试卷编译一次，试卷或其中题目修改时失效。题目布局单独缓存，试卷删除后仍可用于解码二进制作答。
+ * 失效的布局按 (试卷ID, 指纹) 保留，与布局变更并发、按旧布局编码的作答在展开为JSON前仍可解码。
+ */
+@Component
+@RequiredArgsConstructor
+public class AnswerKeyCache {
+
+    // 每份试卷保留的旧布局数
+    private static final int MAX_RETIRED = 16;
+
+    private final PaperMapper paperMapper;
+    private final PaperQuestionService paperQuestionService;
+
+    private final Map<Long, AnswerKey> keys = new ConcurrentHashMap<>();
+    private final Map<Long, AnswerLayout> layouts = new ConcurrentHashMap<>();
+    private final Map<Long, Map<Integer, AnswerLayout>> retired = new ConcurrentHashMap<>();
+    // 每次失效递增，避免编译期间发生的修改被旧结果覆盖
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder builds = new LongAdder();
+
+    public AnswerKey get(Long paperId) {
+        if (paperId == null) {
+            return null;
+        }
+        AnswerKey key = keys.get(paperId);
+        if (key != null) {
+            return key;
+        }
+        long current = generation.get();
+        Paper paper = paperMapper.selectById(paperId);
+        if (paper == null) {
+            return null;
+        }
+        key = AnswerKey.compile(paperQuestionService.getPaperQuestions(paperId), layout(paperId));
+        builds.increment();
+        if (generation.get() == current) {
+            AnswerKey existing = keys.putIfAbsent(paperId, key);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return key;
+    }
+
+    // 试卷题目布局，不要求试卷存在
+    public AnswerLayout layout(Long paperId) {
+        if (paperId == null) {
+            return null;
+        }
+        AnswerLayout layout = layouts.get(paperId);
+        if (layout != null) {
+            return layout;
+        }
+        long current = generation.get();
+        layout = new AnswerLayout(paperQuestionService.getQuestionIds(paperId));
+        if (generation.get() == current) {
+            AnswerLayout existing = layouts.putIfAbsent(paperId, layout);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return layout;
+    }
+
+    // 编码作答所用的布局：当前布局，或指纹一致的旧布局；都不一致返回null
+    public AnswerLayout layout(Long paperId, byte[] codes) {
+        AnswerLayout layout = layout(paperId);
+        if (layout == null || layout.matches(codes)) {
+            return layout;
+        }
+        Integer fingerprint = AnswerCodes.layoutFingerprint(codes);
+        Map<Integer, AnswerLayout> previous = fingerprint == null ? null : retired.get(paperId);
+        if (previous == null) {
+            return null;
+        }
+        synchronized (previous) {
+            AnswerLayout old = previous.get(fingerprint);
+            return old != null && old.matches(codes) ? old : null;
+        }
+    }
+
+    // 返回失效前缓存的布局（没有则为null）
+    public AnswerLayout invalidate(Long paperId) {
+        generation.incrementAndGet();
+        if (paperId == null) {
+            return null;
+        }
+        keys.remove(paperId);
+        AnswerLayout previous = layouts.remove(paperId);
+        retire(paperId, previous);
+        return previous;
+    }
+
+    // 题目修改后，使包含该题的试卷答案失效
+    public void invalidateQuestion(Long questionId) {
+        generation.incrementAndGet();
+        if (questionId != null) {
+            keys.values().removeIf(key -> key.contains(questionId));
+        }
+    }
+
+    // 返回失效前缓存的布局（试卷ID -> 布局）
+    public Map<Long, AnswerLayout> invalidateAll() {
+        generation.incrementAndGet();
+        keys.clear();
+        Map<Long, AnswerLayout> previous = new HashMap<>(layouts);
+        previous.forEach(layouts::remove);
+        previous.forEach(this::retire);
+        return previous;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", keys.size());
+        stats.put("layouts", layouts.size());
+        stats.put("retiredLayouts", retired.values().stream().mapToInt(Map::size).sum());
+        stats.put("builds", builds.sum());
+        return stats;
+    }
+
+    private void retire(Long paperId, AnswerLayout layout) {
+        if (layout == null) {
+            return;
+        }
+        Map<Integer, AnswerLayout> previous = retired.computeIfAbsent(paperId, id -> new LinkedHashMap<>());
+        synchronized (previous) {
+            previous.remove(layout.fingerprint());
+            previous.put(layout.fingerprint(), layout);
+            if (previous.size() > MAX_RETIRED) {
+                previous.remove(previous.keySet().iterator().next());
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.exam.cache;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 试卷题目布局（t_paper_question 中的题目顺序），二进制作答按该顺序编码
+ */
+public final class AnswerLayout {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final long[] questionIds;
+    private final long[] sortedIds;
+    private final int[] sortedPositions;
+    private final int fingerprint;
+
+    public AnswerLayout(long[] questionIds) {
+        this.questionIds = questionIds;
+        int n = questionIds.length;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(questionIds[a], questionIds[b]));
+        sortedIds = new long[n];
+        sortedPositions = new int[n];
+        for (int i = 0; i < n; i++) {
+            sortedIds[i] = questionIds[order[i]];
+            sortedPositions[i] = order[i];
+        }
+        fingerprint = n * 31 + Arrays.hashCode(questionIds);
+    }
+
+    public int size() {
+        return questionIds.length;
+    }
+
+    public long questionId(int position) {
+        return questionIds[position];
+    }
+
+    // 题目在试卷中的位置，不存在返回-1
+    public int positionOf(long questionId) {
+        int i = Arrays.binarySearch(sortedIds, questionId);
+        return i >= 0 ? sortedPositions[i] : -1;
+    }
+
+    public boolean sameAs(long[] otherIds) {
+        return Arrays.equals(questionIds, otherIds);
+    }
+
+    public boolean sameAs(AnswerLayout other) {
+        return other != null && Arrays.equals(questionIds, other.questionIds);
+    }
+
+    int fingerprint() {
+        return fingerprint;
+    }
+
+    // 编码后的作答是否按本布局生成
+    public boolean matches(byte[] codes) {
+        return AnswerCodes.matches(codes, fingerprint, questionIds.length);
+    }
+
+    // {"题目ID":"答案"} 编码为二进制；含不在试卷中的题目、多选或非字母答案时返回null，由调用方保留JSON
+    public byte[] encode(String answersJson) {
+        byte[] codes = AnswerCodes.allocate(fingerprint, questionIds.length);
+        if (answersJson == null || answersJson.isEmpty()) {
+            return codes;
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(answersJson)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                int position = positionOf(parseId(parser.getCurrentName()));
+                if (position < 0 || parser.nextToken() != JsonToken.VALUE_STRING) {
+                    return null;
+                }
+                int code = parser.getTextLength() == 0 ? AnswerCodes.UNANSWERED
+                        : AnswerCodes.code(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                if (code < 0) {
+                    return null;
+                }
+                // 同一题重复出现时以最后一次为准
+                AnswerCodes.set(codes, position, code);
+            }
+            if (parser.nextToken() != null) {
+                return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return codes;
+    }
+
+    // 解码为按试卷顺序排列的 {"题目ID":"答案"}，布局不一致时返回null
+    public String decode(byte[] codes) {
+        if (!matches(codes)) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(questionIds.length * 10 + 2).append('{');
+        for (int i = 0; i < questionIds.length; i++) {
+            String symbol = AnswerCodes.symbol(AnswerCodes.get(codes, i));
+            if (symbol != null) {
+                if (sb.length() > 1) {
+                    sb.append(',');
+                }
+                sb.append('"').append(questionIds[i]).append("\":\"").append(symbol).append('"');
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    static long parseId(String name) {
+        if (name == null || name.isEmpty() || name.length() > 18) {
+            return -1;
+        }
+        long id = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            id = id * 10 + (c - '0');
+        }
+        return id;
+    }
+}
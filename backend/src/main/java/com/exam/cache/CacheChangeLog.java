@@ -0,0 +1,49 @@
+package com.exam.cache;
+
+import com.exam.entity.CacheChange;
+import com.exam.mapper.CacheChangeMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 缓存变更日志
+ * 题目、试卷写入后追加一行到 t_cache_change，各节点的 CacheSyncPoller 轮询后失效本地缓存。
+ * 在写入所在的事务中追加时，变更与数据一起提交。
+ */
+@Component
+@RequiredArgsConstructor
+public class CacheChangeLog {
+
+    public static final String QUESTION = "question";
+    public static final String PAPER = "paper";
+    // 批量导入后整体刷新题库
+    public static final String QUESTION_ALL = "question-all";
+
+    private final CacheChangeMapper cacheChangeMapper;
+
+    @Value("${exam.cache-sync.enabled:true}")
+    private boolean enabled;
+
+    public void question(Long questionId) {
+        append(QUESTION, questionId);
+    }
+
+    public void paper(Long paperId) {
+        append(PAPER, paperId);
+    }
+
+    public void allQuestions() {
+        append(QUESTION_ALL, null);
+    }
+
+    private void append(String type, Long id) {
+        if (!enabled) {
+            return;
+        }
+        CacheChange change = new CacheChange();
+        change.setEntityType(type);
+        change.setEntityId(id);
+        cacheChangeMapper.insert(change);
+    }
+}
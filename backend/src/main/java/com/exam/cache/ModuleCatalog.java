@@ -0,0 +1,98 @@
+package com.exam.cache;
+
+import com.exam.entity.Question;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 题目模块目录（按analysis字段分组计数）
+ * 由题库快照派生：快照加载时整体统计，之后随快照变更增量维护。
+ */
+@Component
+@RequiredArgsConstructor
+public class ModuleCatalog implements QuestionCache.Listener {
+
+    private final QuestionCache questionCache;
+
+    private volatile Map<String, AtomicLong> counts;
+
+    @PostConstruct
+    public void init() {
+        questionCache.addListener(this);
+    }
+
+    public List<Map<String, Object>> list() {
+        List<Map<String, Object>> modules = new ArrayList<>();
+        counts().forEach((name, count) -> {
+            long value = count.get();
+            if (value > 0) {
+                Map<String, Object> module = new HashMap<>();
+                module.put("name", name);
+                module.put("count", value);
+                modules.add(module);
+            }
+        });
+        // 按模块名称排序
+        modules.sort((a, b) -> ((String) a.get("name")).compareTo((String) b.get("name")));
+        return modules;
+    }
+
+    @Override
+    public synchronized void onChanged(Question before, Question after) {
+        String oldModule = moduleOf(before);
+        String newModule = moduleOf(after);
+        if (oldModule != null && oldModule.equals(newModule)) {
+            return;
+        }
+        adjust(oldModule, -1);
+        adjust(newModule, 1);
+    }
+
+    @Override
+    public synchronized void onReloaded(List<Question> questions) {
+        Map<String, AtomicLong> result = new ConcurrentHashMap<>();
+        for (Question question : questions) {
+            String module = moduleOf(question);
+            if (module != null) {
+                result.computeIfAbsent(module, m -> new AtomicLong()).incrementAndGet();
+            }
+        }
+        counts = result;
+    }
+
+    private void adjust(String module, int delta) {
+        Map<String, AtomicLong> current = counts;
+        if (module == null || current == null) {
+            return;
+        }
+        AtomicLong count = current.computeIfAbsent(module, m -> new AtomicLong());
+        if (count.addAndGet(delta) <= 0) {
+            current.remove(module);
+        }
+    }
+
+    private Map<String, AtomicLong> counts() {
+        Map<String, AtomicLong> current = counts;
+        if (current == null) {
+            // 快照首次加载时回调 onReloaded 建立目录
+            questionCache.all();
+            current = counts;
+        }
+        return current;
+    }
+
+    private static String moduleOf(Question question) {
+        if (question == null || question.getAnalysis() == null || question.getAnalysis().isEmpty()) {
+            return null;
+        }
+        return question.getAnalysis();
+    }
+}
@@ -0,0 +1,266 @@
+package com.exam.cache;
+
+import com.exam.entity.Question;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 试卷响应体缓存
+ * 试卷详情和试卷题目列表序列化一次后以字节数组缓存（较大的同时缓存gzip版本），ETag取内容摘要。
+ * 同一试卷的并发首次请求只有一个线程加载和序列化，其余等待其结果；试卷或其中题目修改时失效。
+ * 试卷不存在时不缓存；两类响应体各最多保留 max-papers 份，超出时淘汰最久未访问的。
+ */
+@Component
+@RequiredArgsConstructor
+public class PaperPayloadCache {
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${exam.payload.gzip-min-bytes:1024}")
+    private int gzipMinBytes;
+
+    @Value("${exam.payload.max-papers:500}")
+    private int maxPapers;
+
+    private final Map<Long, CompletableFuture<Payload>> papers = new ConcurrentHashMap<>();
+    private final Map<Long, CompletableFuture<Payload>> questionLists = new ConcurrentHashMap<>();
+    // 每次失效递增，避免加载期间发生的修改被旧结果覆盖
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder builds = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // 试卷详情，loader 返回null（试卷不存在）时不缓存
+    public Payload paper(Long paperId, Supplier<?> loader) {
+        return load(papers, paperId, loader);
+    }
+
+    // 试卷题目列表，loader 返回null（试卷不存在）时不缓存
+    public Payload questions(Long paperId, Supplier<List<Question>> loader) {
+        return load(questionLists, paperId, loader);
+    }
+
+    public void invalidate(Long paperId) {
+        generation.incrementAndGet();
+        if (paperId != null) {
+            papers.remove(paperId);
+            questionLists.remove(paperId);
+        }
+    }
+
+    // 题目修改后，使包含该题的试卷题目列表失效
+    public void invalidateQuestion(Long questionId) {
+        generation.incrementAndGet();
+        if (questionId != null) {
+            questionLists.values().removeIf(future -> {
+                Payload payload = future.getNow(null);
+                return payload == null || payload.contains(questionId);
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        papers.clear();
+        questionLists.clear();
+    }
+
+    public Map<String, Object> stats() {
+        long bytes = 0;
+        int size = 0;
+        for (Map<Long, CompletableFuture<Payload>> map : List.of(papers, questionLists)) {
+            for (CompletableFuture<Payload> future : map.values()) {
+                Payload payload = future.getNow(null);
+                if (payload != null) {
+                    size++;
+                    bytes += payload.json.length + (payload.gzip == null ? 0 : payload.gzip.length);
+                }
+            }
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", size);
+        stats.put("bytes", bytes);
+        stats.put("hits", hits.sum());
+        stats.put("builds", builds.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    private Payload load(Map<Long, CompletableFuture<Payload>> map, Long paperId, Supplier<?> loader) {
+        CompletableFuture<Payload> future = map.get(paperId);
+        if (future != null) {
+            hits.increment();
+            return touch(join(future));
+        }
+        CompletableFuture<Payload> created = new CompletableFuture<>();
+        future = map.putIfAbsent(paperId, created);
+        if (future != null) {
+            hits.increment();
+            return touch(join(future));
+        }
+
+        long current = generation.get();
+        Payload payload;
+        try {
+            Object value = loader.get();
+            payload = value == null ? null : encode(value);
+        } catch (RuntimeException e) {
+            map.remove(paperId, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+        builds.increment();
+        created.complete(touch(payload));
+        if (payload == null || generation.get() != current) {
+            map.remove(paperId, created);
+        } else {
+            evictIfNeeded(map);
+        }
+        return payload;
+    }
+
+    private static Payload touch(Payload payload) {
+        if (payload != null) {
+            payload.lastAccess = System.currentTimeMillis();
+        }
+        return payload;
+    }
+
+    private void evictIfNeeded(Map<Long, CompletableFuture<Payload>> map) {
+        while (map.size() > maxPapers) {
+            Map.Entry<Long, CompletableFuture<Payload>> coldest = null;
+            long coldestAccess = Long.MAX_VALUE;
+            for (Map.Entry<Long, CompletableFuture<Payload>> entry : map.entrySet()) {
+                // 加载中的不淘汰
+                Payload payload = entry.getValue().getNow(null);
+                if (payload != null && payload.lastAccess < coldestAccess) {
+                    coldest = entry;
+                    coldestAccess = payload.lastAccess;
+                }
+            }
+            if (coldest == null || !map.remove(coldest.getKey(), coldest.getValue())) {
+                return;
+            }
+            evictions.increment();
+        }
+    }
+
+    private static Payload join(CompletableFuture<Payload> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private Payload encode(Object value) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        long[] questionIds = null;
+        if (value instanceof List<?> list) {
+            questionIds = list.stream()
+                    .filter(Question.class::isInstance)
+                    .mapToLong(item -> ((Question) item).getId())
+                    .sorted()
+                    .toArray();
+        }
+        byte[] gzip = json.length >= gzipMinBytes ? gzip(json) : null;
+        return new Payload(json, gzip, digest(json), questionIds);
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String digest(byte[] data) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(data);
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 预编码的响应体，json 与 gzip 两种表示使用不同的强ETag
+     */
+    public static final class Payload {
+        private final byte[] json;
+        private final byte[] gzip;
+        private final String digest;
+        private final long[] questionIds;
+        private volatile long lastAccess;
+
+        private Payload(byte[] json, byte[] gzip, String digest, long[] questionIds) {
+            this.json = json;
+            this.gzip = gzip;
+            this.digest = digest;
+            this.questionIds = questionIds;
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        // 体积低于阈值时为null
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        public String etag(boolean gzipped) {
+            return gzipped ? "\"" + digest + "-gz\"" : "\"" + digest + "\"";
+        }
+
+        // If-None-Match 是否命中任一表示
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null || ifNoneMatch.isEmpty()) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                String value = tag.trim();
+                if (value.equals("*") || value.equals(etag(false)) || value.equals(etag(true))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean contains(long questionId) {
+            return questionIds != null && Arrays.binarySearch(questionIds, questionId) >= 0;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.exam.cache;
+
+import com.exam.entity.Question;
+import com.exam.mapper.QuestionMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 题库内存快照
+ * 快照按ID排序后存放在两个数组中，只读且整体替换；写操作（增删改）采用写时复制后原子切换，
+ * 读操作无锁。快照未命中时回源数据库并补入快照；数据库中也不存在的ID记入短期负缓存（最多 1024 个，10 秒过期），
+ * 避免反复查询已删除或伪造的ID，题目写入快照时从负缓存中移除。负缓存不改变快照，也不递增版本。
+ * 快照每次变化（包括回源补入）都在切换时按顺序通知 Listener，派生索引据此增量维护。
+ */
+@Component
+@RequiredArgsConstructor
+public class QuestionCache {
+
+    private static final int MAX_ABSENT = 1024;
+    private static final long ABSENT_TTL_MILLIS = 10_000;
+
+    private final QuestionMapper questionMapper;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder absentHits = new LongAdder();
+    // 数据库中不存在的ID -> 过期时间
+    private final Map<Long, Long> absent = new ConcurrentHashMap<>();
+    // 每次快照切换递增，回源期间据此判断快照是否有写入
+    private final AtomicLong version = new AtomicLong();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 快照变更监听，在快照切换的同步块内回调，回调中不能再访问 QuestionCache
+     */
+    public interface Listener {
+
+        // before 为空表示新增，after 为空表示删除
+        void onChanged(Question before, Question after);
+
+        // 快照整体加载或重新加载，questions 按ID升序
+        void onReloaded(List<Question> questions);
+    }
+
+    // 注册监听，快照已加载时立即以当前快照回调 onReloaded
+    public synchronized void addListener(Listener listener) {
+        listeners.add(listener);
+        Snapshot current = snapshot.get();
+        if (current != null) {
+            listener.onReloaded(current.list());
+        }
+    }
+
+    public Question get(Long id) {
+        if (id == null) {
+            return null;
+        }
+        Question question = current().find(id);
+        if (question != null) {
+            hits.increment();
+            return question;
+        }
+        if (isAbsent(id)) {
+            absentHits.increment();
+            return null;
+        }
+        misses.increment();
+        long before = version.get();
+        question = questionMapper.selectById(id);
+        if (question != null) {
+            put(question);
+        } else {
+            markAbsent(List.of(id), before);
+        }
+        return question;
+    }
+
+    // 按给定顺序返回题目，不存在的ID会被跳过
+    public List<Question> getAll(long[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+        Snapshot current = current();
+        Question[] found = new Question[ids.length];
+        List<Long> missing = null;
+        int hitCount = 0;
+        for (int i = 0; i < ids.length; i++) {
+            found[i] = current.find(ids[i]);
+            if (found[i] != null) {
+                hitCount++;
+            } else if (isAbsent(ids[i])) {
+                absentHits.increment();
+            } else {
+                if (missing == null) {
+                    missing = new ArrayList<>();
+                }
+                missing.add(ids[i]);
+            }
+        }
+        hits.add(hitCount);
+        if (missing != null) {
+            misses.add(missing.size());
+            long before = version.get();
+            List<Question> loaded = questionMapper.selectBatchIds(missing);
+            Map<Long, Question> byId = new HashMap<>();
+            for (Question q : loaded) {
+                byId.put(q.getId(), q);
+            }
+            if (byId.size() < missing.size()) {
+                List<Long> notFound = new ArrayList<>(missing.size() - byId.size());
+                for (Long id : missing) {
+                    if (!byId.containsKey(id)) {
+                        notFound.add(id);
+                    }
+                }
+                markAbsent(notFound, before);
+            }
+            if (!loaded.isEmpty()) {
+                putAll(loaded);
+                for (int i = 0; i < ids.length; i++) {
+                    if (found[i] == null) {
+                        found[i] = byId.get(ids[i]);
+                    }
+                }
+            }
+        }
+        List<Question> result = new ArrayList<>(ids.length);
+        for (Question q : found) {
+            if (q != null) {
+                result.add(q);
+            }
+        }
+        return result;
+    }
+
+    // 只查快照，不回源；快照尚未加载时返回 null
+    public Question peek(Long id) {
+        Snapshot current = snapshot.get();
+        return current == null || id == null ? null : current.find(id);
+    }
+
+    public boolean isLoaded() {
+        return snapshot.get() != null;
+    }
+
+    // 当前快照中的全部题目（按ID升序），供内存索引构建使用
+    public List<Question> all() {
+        return current().list();
+    }
+
+    public synchronized void put(Question question) {
+        putAll(List.of(question));
+    }
+
+    public synchronized void putAll(List<Question> questions) {
+        Snapshot current = snapshot.get();
+        if (current == null) {
+            // 尚未加载，首次访问时会整体加载
+            return;
+        }
+        for (Question q : questions) {
+            absent.remove(q.getId());
+        }
+        Snapshot next = current.with(questions);
+        swap(next);
+        Set<Long> notified = new HashSet<>();
+        for (Question q : questions) {
+            if (notified.add(q.getId())) {
+                Question before = current.find(q.getId());
+                Question after = next.find(q.getId());
+                listeners.forEach(listener -> listener.onChanged(before, after));
+            }
+        }
+    }
+
+    public synchronized void evict(Long id) {
+        Snapshot current = snapshot.get();
+        if (current == null || id == null) {
+            return;
+        }
+        Question before = current.find(id);
+        if (before != null) {
+            swap(current.without(id));
+            listeners.forEach(listener -> listener.onChanged(before, null));
+        }
+    }
+
+    // 重新从数据库整体加载
+    public synchronized void reload() {
+        absent.clear();
+        swapReloaded(load());
+    }
+
+    public Map<String, Object> stats() {
+        Snapshot current = snapshot.get();
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", current == null ? 0 : current.ids.length);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("loads", loads.sum());
+        stats.put("absent", absent.size());
+        stats.put("absentHits", absentHits.sum());
+        return stats;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot.get();
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot.get();
+            if (current == null) {
+                current = load();
+                swapReloaded(current);
+            }
+            return current;
+        }
+    }
+
+    private boolean isAbsent(long id) {
+        Long expiresAt = absent.get(id);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt > System.currentTimeMillis()) {
+            return true;
+        }
+        absent.remove(id, expiresAt);
+        return false;
+    }
+
+    // 查询期间快照有写入（可能正是这些ID）时不记，避免把刚新增的题目当作不存在
+    private synchronized void markAbsent(List<Long> ids, long versionBefore) {
+        if (version.get() != versionBefore) {
+            return;
+        }
+        if (absent.size() + ids.size() > MAX_ABSENT) {
+            absent.clear();
+        }
+        long expiresAt = System.currentTimeMillis() + ABSENT_TTL_MILLIS;
+        for (int i = 0; i < ids.size() && i < MAX_ABSENT; i++) {
+            absent.put(ids.get(i), expiresAt);
+        }
+    }
+
+    private void swap(Snapshot next) {
+        snapshot.set(next);
+        version.incrementAndGet();
+    }
+
+    private void swapReloaded(Snapshot next) {
+        swap(next);
+        if (!listeners.isEmpty()) {
+            List<Question> questions = next.list();
+            listeners.forEach(listener -> listener.onReloaded(questions));
+        }
+    }
+
+    private Snapshot load() {
+        loads.increment();
+        return Snapshot.of(questionMapper.selectList(null));
+    }
+
+    static final class Snapshot {
+
+        private final long[] ids;
+        private final Question[] questions;
+
+        private Snapshot(long[] ids, Question[] questions) {
+            this.ids = ids;
+            this.questions = questions;
+        }
+
+        static Snapshot of(List<Question> list) {
+            Question[] questions = list.toArray(new Question[0]);
+            Arrays.sort(questions, Comparator.comparing(Question::getId));
+            long[] ids = new long[questions.length];
+            for (int i = 0; i < questions.length; i++) {
+                ids[i] = questions[i].getId();
+            }
+            return new Snapshot(ids, questions);
+        }
+
+        List<Question> list() {
+            return Collections.unmodifiableList(Arrays.asList(questions));
+        }
+
+        Question find(long id) {
+            int index = Arrays.binarySearch(ids, id);
+            return index >= 0 ? questions[index] : null;
+        }
+
+        // 变更按ID排序后与现有数组归并，已存在的替换、新增的插入，不重排整个快照
+        Snapshot with(List<Question> changed) {
+            if (changed.size() == 1) {
+                return with(changed.get(0));
+            }
+            Question[] sorted = changed.toArray(new Question[0]);
+            Arrays.sort(sorted, Comparator.comparing(Question::getId));
+            long[] newIds = new long[ids.length + sorted.length];
+            Question[] newQuestions = new Question[ids.length + sorted.length];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < ids.length || j < sorted.length) {
+                long id;
+                Question q;
+                if (j == sorted.length || (i < ids.length && ids[i] < sorted[j].getId())) {
+                    id = ids[i];
+                    q = questions[i++];
+                } else {
+                    id = sorted[j].getId();
+                    q = sorted[j++];
+                    if (i < ids.length && ids[i] == id) {
+                        i++;
+                    }
+                    // 同一批内重复的ID以最后一个为准
+                    while (j < sorted.length && sorted[j].getId() == id) {
+                        q = sorted[j++];
+                    }
+                }
+                newIds[n] = id;
+                newQuestions[n++] = q;
+            }
+            return n == newIds.length
+                    ? new Snapshot(newIds, newQuestions)
+                    : new Snapshot(Arrays.copyOf(newIds, n), Arrays.copyOf(newQuestions, n));
+        }
+
+        Snapshot with(Question question) {
+            long id = question.getId();
+            int index = Arrays.binarySearch(ids, id);
+            if (index >= 0) {
+                // ID不变，共用ID数组
+                Question[] newQuestions = questions.clone();
+                newQuestions[index] = question;
+                return new Snapshot(ids, newQuestions);
+            }
+            int insert = -index - 1;
+            long[] newIds = new long[ids.length + 1];
+            Question[] newQuestions = new Question[ids.length + 1];
+            System.arraycopy(ids, 0, newIds, 0, insert);
+            System.arraycopy(ids, insert, newIds, insert + 1, ids.length - insert);
+            System.arraycopy(questions, 0, newQuestions, 0, insert);
+            System.arraycopy(questions, insert, newQuestions, insert + 1, ids.length - insert);
+            newIds[insert] = id;
+            newQuestions[insert] = question;
+            return new Snapshot(newIds, newQuestions);
+        }
+
+        Snapshot without(long id) {
+            int index = Arrays.binarySearch(ids, id);
+            if (index < 0) {
+                return this;
+            }
+            long[] newIds = new long[ids.length - 1];
+            Question[] newQuestions = new Question[ids.length - 1];
+            System.arraycopy(ids, 0, newIds, 0, index);
+            System.arraycopy(ids, index + 1, newIds, index, ids.length - index - 1);
+            System.arraycopy(questions, 0, newQuestions, 0, index);
+            System.arraycopy(questions, index + 1, newQuestions, index, ids.length - index - 1);
+            return new Snapshot(newIds, newQuestions);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.exam.cache;
+
+import com.exam.entity.Question;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 随机抽题
+ * 基于题库快照维护按题型、按模块划分的ID数组，用稀疏的部分Fisher–Yates洗牌抽取k个不重复ID，
+ * 抽样代价只与k有关，与题库大小无关。
+ * 索引随快照变更增量维护：每个分组是按ID升序的数组，变更时只复制涉及的分组（写时复制），
+ * 只有快照整体重新加载时才全量重建，均在写入线程完成，抽样不加锁。
+ */
+@Component
+@RequiredArgsConstructor
+public class QuestionSampler implements QuestionCache.Listener {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final QuestionCache questionCache;
+
+    private volatile Index index;
+
+    @PostConstruct
+    public void init() {
+        questionCache.addListener(this);
+    }
+
+    // 按题型抽取，seed非空时结果可复现
+    public long[] sampleByType(Integer type, int count, Long seed) {
+        return sample(index().byType.getOrDefault(type, EMPTY), count, seed);
+    }
+
+    // 按模块抽取，module为空时从全部题目中抽取
+    public long[] sampleByModule(String module, int count, Long seed) {
+        Index current = index();
+        long[] pool = module == null ? current.all : current.byModule.getOrDefault(module, EMPTY);
+        return sample(pool, count, seed);
+    }
+
+    @Override
+    public synchronized void onChanged(Question before, Question after) {
+        Index current = index;
+        if (current != null) {
+            index = current.apply(before, after);
+        }
+    }
+
+    @Override
+    public synchronized void onReloaded(List<Question> questions) {
+        index = Index.build(questions);
+    }
+
+    private long[] sample(long[] pool, int count, Long seed) {
+        int n = pool.length;
+        int k = Math.min(Math.max(count, 0), n);
+        Random random = seed == null ? ThreadLocalRandom.current() : new Random(seed);
+        // 只记录被交换过的位置，未出现在swapped中的位置i对应pool[i]
+        Map<Integer, Integer> swapped = new HashMap<>(k * 2);
+        long[] result = new long[k];
+        for (int i = 0; i < k; i++) {
+            int j = i + random.nextInt(n - i);
+            int valueAtJ = swapped.getOrDefault(j, j);
+            int valueAtI = swapped.getOrDefault(i, i);
+            swapped.put(j, valueAtI);
+            result[i] = pool[valueAtJ];
+        }
+        return result;
+    }
+
+    private Index index() {
+        Index current = index;
+        if (current == null) {
+            // 快照首次加载时回调 onReloaded 建立索引
+            questionCache.all();
+            current = index;
+        }
+        return current;
+    }
+
+    private static final class Index {
+        private final long[] all;
+        private final Map<Integer, long[]> byType;
+        private final Map<String, long[]> byModule;
+
+        private Index(long[] all, Map<Integer, long[]> byType, Map<String, long[]> byModule) {
+            this.all = all;
+            this.byType = byType;
+            this.byModule = byModule;
+        }
+
+        // questions 按ID升序，各分组数组也按ID升序
+        static Index build(List<Question> questions) {
+            long[] all = new long[questions.size()];
+            Map<Integer, Integer> typeCounts = new HashMap<>();
+            Map<String, Integer> moduleCounts = new HashMap<>();
+            for (int i = 0; i < all.length; i++) {
+                Question q = questions.get(i);
+                all[i] = q.getId();
+                if (q.getType() != null) {
+                    typeCounts.merge(q.getType(), 1, Integer::sum);
+                }
+                if (moduleOf(q) != null) {
+                    moduleCounts.merge(moduleOf(q), 1, Integer::sum);
+                }
+            }
+            Map<Integer, long[]> byType = new HashMap<>();
+            typeCounts.forEach((type, count) -> byType.put(type, new long[count]));
+            Map<String, long[]> byModule = new HashMap<>();
+            moduleCounts.forEach((module, count) -> byModule.put(module, new long[count]));
+            Map<Integer, Integer> typeFill = new HashMap<>();
+            Map<String, Integer> moduleFill = new HashMap<>();
+            for (Question q : questions) {
+                if (q.getType() != null) {
+                    byType.get(q.getType())[typeFill.merge(q.getType(), 1, Integer::sum) - 1] = q.getId();
+                }
+                String module = moduleOf(q);
+                if (module != null) {
+                    byModule.get(module)[moduleFill.merge(module, 1, Integer::sum) - 1] = q.getId();
+                }
+            }
+            return new Index(all, byType, byModule);
+        }
+
+        // 返回应用一次变更后的索引，未变化的分组与原索引共用
+        Index apply(Question before, Question after) {
+            long id = after != null ? after.getId() : before.getId();
+            Integer oldType = before == null ? null : before.getType();
+            Integer newType = after == null ? null : after.getType();
+            String oldModule = before == null ? null : moduleOf(before);
+            String newModule = after == null ? null : moduleOf(after);
+            boolean present = before != null;
+            boolean stays = after != null;
+            if (present == stays && Objects.equals(oldType, newType) && Objects.equals(oldModule, newModule)) {
+                return this;
+            }
+            long[] nextAll = present == stays ? all : stays ? insert(all, id) : remove(all, id);
+            Map<Integer, long[]> nextTypes = byType;
+            if (!Objects.equals(oldType, newType) || present != stays) {
+                nextTypes = new HashMap<>(byType);
+                move(nextTypes, oldType, newType, id);
+            }
+            Map<String, long[]> nextModules = byModule;
+            if (!Objects.equals(oldModule, newModule) || present != stays) {
+                nextModules = new HashMap<>(byModule);
+                move(nextModules, oldModule, newModule, id);
+            }
+            return new Index(nextAll, nextTypes, nextModules);
+        }
+
+        private static <K> void move(Map<K, long[]> groups, K from, K to, long id) {
+            if (from != null) {
+                long[] ids = remove(groups.getOrDefault(from, EMPTY), id);
+                if (ids.length == 0) {
+                    groups.remove(from);
+                } else {
+                    groups.put(from, ids);
+                }
+            }
+            if (to != null) {
+                groups.put(to, insert(groups.getOrDefault(to, EMPTY), id));
+            }
+        }
+
+        private static long[] insert(long[] ids, long id) {
+            int index = Arrays.binarySearch(ids, id);
+            if (index >= 0) {
+                return ids;
+            }
+            int at = -index - 1;
+            long[] result = new long[ids.length + 1];
+            System.arraycopy(ids, 0, result, 0, at);
+            result[at] = id;
+            System.arraycopy(ids, at, result, at + 1, ids.length - at);
+            return result;
+        }
+
+        private static long[] remove(long[] ids, long id) {
+            int index = Arrays.binarySearch(ids, id);
+            if (index < 0) {
+                return ids;
+            }
+            long[] result = new long[ids.length - 1];
+            System.arraycopy(ids, 0, result, 0, index);
+            System.arraycopy(ids, index + 1, result, index, ids.length - index - 1);
+            return result;
+        }
+
+        private static String moduleOf(Question question) {
+            String module = question.getAnalysis();
+            return module == null || module.isEmpty() ? null : module;
+        }
+    }
+}
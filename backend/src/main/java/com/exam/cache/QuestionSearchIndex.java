@@ -0,0 +1,289 @@
+package com.exam.cache;
+
+import com.exam.entity.Question;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 题目关键词倒排索引
+ * 以字符二元组（bigram）为词项索引题目内容和选项，中文无需分词；单字查询使用一元组。
+ * 每个词项的倒排表是按ID排序的long数组，修改时整体替换，查询无锁。
+ * 求交得到候选后再用原文校验（不区分大小写）；空白分隔的多个关键词需全部命中。
+ * 索引随快照变更增量维护；快照整体重新加载时丢弃，下次查询时全量重建。
+ */
+@Component
+@RequiredArgsConstructor
+public class QuestionSearchIndex implements QuestionCache.Listener {
+
+    private static final long[] EMPTY = new long[0];
+    // 一元组词项的标记位，与二元组 (c1 << 16 | c2) 区分
+    private static final long UNIGRAM = 1L << 32;
+
+    private final QuestionCache questionCache;
+
+    private final Map<Long, long[]> postings = new ConcurrentHashMap<>();
+    private volatile boolean built;
+
+    @PostConstruct
+    public void init() {
+        questionCache.addListener(this);
+    }
+
+    // 返回匹配的题目ID，按相关度排序：题干命中优先于仅选项命中，同级按ID倒序（新题在前）
+    public long[] search(String keyword, Integer type) {
+        List<String> tokens = tokenize(keyword);
+        if (tokens.isEmpty()) {
+            return EMPTY;
+        }
+        ensureBuilt();
+
+        List<long[]> lists = new ArrayList<>();
+        for (String token : tokens) {
+            if (token.length() == 1) {
+                lists.add(postings.getOrDefault(UNIGRAM | token.charAt(0), EMPTY));
+            } else {
+                for (int i = 0; i + 1 < token.length(); i++) {
+                    lists.add(postings.getOrDefault(bigram(token.charAt(i), token.charAt(i + 1)), EMPTY));
+                }
+            }
+        }
+        lists.sort((a, b) -> Integer.compare(a.length, b.length));
+        long[] candidates = lists.get(0);
+        for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+            candidates = intersect(candidates, lists.get(i));
+        }
+
+        // 校验候选并打分
+        long[] contentHits = new long[candidates.length];
+        long[] optionHits = new long[candidates.length];
+        int contentCount = 0;
+        int optionCount = 0;
+        for (int i = candidates.length - 1; i >= 0; i--) {
+            Question question = questionCache.get(candidates[i]);
+            if (question == null || (type != null && !type.equals(question.getType()))) {
+                continue;
+            }
+            if (containsAll(question.getContent(), tokens)) {
+                contentHits[contentCount++] = candidates[i];
+            } else if (containsAll(question, tokens)) {
+                optionHits[optionCount++] = candidates[i];
+            }
+        }
+        long[] result = new long[contentCount + optionCount];
+        System.arraycopy(contentHits, 0, result, 0, contentCount);
+        System.arraycopy(optionHits, 0, result, contentCount, optionCount);
+        return result;
+    }
+
+    @Override
+    public synchronized void onChanged(Question before, Question after) {
+        if (!built) {
+            return;
+        }
+        Set<Long> oldGrams = before == null ? Set.of() : grams(before);
+        Set<Long> newGrams = after == null ? Set.of() : grams(after);
+        long id = before != null ? before.getId() : after.getId();
+        for (long gram : oldGrams) {
+            if (!newGrams.contains(gram)) {
+                postings.computeIfPresent(gram, (k, ids) -> remove(ids, id));
+            }
+        }
+        for (long gram : newGrams) {
+            if (!oldGrams.contains(gram)) {
+                postings.compute(gram, (k, ids) -> insert(ids, id));
+            }
+        }
+    }
+
+    // 在快照切换的同步块内回调，只丢弃索引，不在这里全量重建
+    @Override
+    public synchronized void onReloaded(List<Question> questions) {
+        built = false;
+        postings.clear();
+    }
+
+    private synchronized void rebuild() {
+        // 每个词项一个可增长的long数组，不为每条倒排记录装箱
+        Map<Long, IdBuffer> buffers = new HashMap<>();
+        // 快照按ID升序，追加后各倒排表天然有序
+        for (Question question : questionCache.all()) {
+            long id = question.getId();
+            for (long gram : grams(question)) {
+                buffers.computeIfAbsent(gram, k -> new IdBuffer()).add(id);
+            }
+        }
+        postings.clear();
+        buffers.forEach((gram, ids) -> postings.put(gram, ids.toArray()));
+        built = true;
+    }
+
+    public Map<String, Object> stats() {
+        long entries = 0;
+        for (long[] ids : postings.values()) {
+            entries += ids.length;
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("built", built);
+        stats.put("terms", postings.size());
+        stats.put("postings", entries);
+        return stats;
+    }
+
+    private void ensureBuilt() {
+        if (!built) {
+            // 先在锁外确保快照已加载：加载时会持有 QuestionCache 的锁回调本类，锁内再取快照就不会反向等待
+            questionCache.all();
+            synchronized (this) {
+                if (!built) {
+                    rebuild();
+                }
+            }
+        }
+    }
+
+    private static Set<Long> grams(Question question) {
+        Set<Long> grams = new HashSet<>();
+        addGrams(grams, question.getContent());
+        addGrams(grams, question.getOptionA());
+        addGrams(grams, question.getOptionB());
+        addGrams(grams, question.getOptionC());
+        addGrams(grams, question.getOptionD());
+        return grams;
+    }
+
+    private static void addGrams(Set<Long> grams, String text) {
+        for (String token : tokenize(text)) {
+            for (int i = 0; i < token.length(); i++) {
+                grams.add(UNIGRAM | token.charAt(i));
+                if (i + 1 < token.length()) {
+                    grams.add(bigram(token.charAt(i), token.charAt(i + 1)));
+                }
+            }
+        }
+    }
+
+    // 按空白切分并转小写
+    private static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("\\s+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static long bigram(char first, char second) {
+        return ((long) first << 16) | second;
+    }
+
+    private static boolean containsAll(String text, List<String> tokens) {
+        if (text == null) {
+            return false;
+        }
+        for (String token : tokens) {
+            if (!containsIgnoreCase(text, token)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 每个关键词命中题干或任一选项
+    private static boolean containsAll(Question question, List<String> tokens) {
+        for (String token : tokens) {
+            if (!containsIgnoreCase(question.getContent(), token)
+                    && !containsIgnoreCase(question.getOptionA(), token)
+                    && !containsIgnoreCase(question.getOptionB(), token)
+                    && !containsIgnoreCase(question.getOptionC(), token)
+                    && !containsIgnoreCase(question.getOptionD(), token)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsIgnoreCase(String text, String token) {
+        if (text == null) {
+            return false;
+        }
+        int max = text.length() - token.length();
+        for (int i = 0; i <= max; i++) {
+            if (text.regionMatches(true, i, token, 0, token.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long[] intersect(long[] small, long[] large) {
+        long[] result = new long[small.length];
+        int size = 0;
+        for (long id : small) {
+            if (Arrays.binarySearch(large, id) >= 0) {
+                result[size++] = id;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static long[] insert(long[] ids, long id) {
+        if (ids == null) {
+            return new long[]{id};
+        }
+        int index = Arrays.binarySearch(ids, id);
+        if (index >= 0) {
+            return ids;
+        }
+        index = -index - 1;
+        long[] result = new long[ids.length + 1];
+        System.arraycopy(ids, 0, result, 0, index);
+        result[index] = id;
+        System.arraycopy(ids, index, result, index + 1, ids.length - index);
+        return result;
+    }
+
+    private static long[] remove(long[] ids, long id) {
+        int index = Arrays.binarySearch(ids, id);
+        if (index < 0) {
+            return ids;
+        }
+        if (ids.length == 1) {
+            return null;
+        }
+        long[] result = new long[ids.length - 1];
+        System.arraycopy(ids, 0, result, 0, index);
+        System.arraycopy(ids, index + 1, result, index, ids.length - index - 1);
+        return result;
+    }
+
+    private static final class IdBuffer {
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        long[] toArray() {
+            return size == ids.length ? ids : Arrays.copyOf(ids, size);
+        }
+    }
+}
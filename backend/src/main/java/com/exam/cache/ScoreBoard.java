@@ -0,0 +1,265 @@
+package com.exam.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 单份试卷的排行榜
+ * 每名学生保留最好成绩（同分取先交卷的），按分数建树状数组统计人数，同分的成绩按交卷时间排在各自分数桶内，
+ * 分数桶是按 (交卷时间, 记录ID) 排序、记录子树大小的树堆，同分人数再多插入、删除和桶内名次也是对数时间。
+ * 名次 = 高于该分的人数 + 同分中排在前面的人数 + 1；取前N名从最高分桶依次按序读取。
+ */
+public final class ScoreBoard {
+
+    private static final Comparator<Entry> BUCKET_ORDER =
+            Comparator.comparingLong(Entry::getSubmitTime).thenComparingLong(Entry::getRecordId);
+
+    // tree[i] 为树状数组节点，下标 score + 1
+    private long[] tree;
+    private List<Bucket> buckets;
+    private final Map<Long, Entry> best = new HashMap<>();
+
+    public ScoreBoard(int maxScore) {
+        allocate(Math.max(maxScore, 0) + 1);
+    }
+
+    // 记录一次成绩，只有优于该学生已有成绩时才替换；重复记录同一条成绩不产生变化
+    public synchronized boolean offer(long userId, long recordId, int score, long submitTime) {
+        Entry entry = new Entry(userId, recordId, Math.max(score, 0), submitTime);
+        Entry current = best.get(userId);
+        if (current != null) {
+            if (!better(entry, current)) {
+                return false;
+            }
+            remove(current);
+        }
+        if (entry.score >= buckets.size()) {
+            grow(entry.score + 1);
+        }
+        buckets.get(entry.score).insert(entry);
+        add(entry.score, 1);
+        best.put(userId, entry);
+        return true;
+    }
+
+    public synchronized int size() {
+        return best.size();
+    }
+
+    public synchronized Entry get(long userId) {
+        return best.get(userId);
+    }
+
+    // 名次从1开始，没有成绩返回0
+    public synchronized int rankOf(long userId) {
+        Entry entry = best.get(userId);
+        if (entry == null) {
+            return 0;
+        }
+        long above = best.size() - prefix(entry.score);
+        int within = buckets.get(entry.score).countBefore(entry);
+        return (int) above + within + 1;
+    }
+
+    // 前 n 名，按名次排列
+    public synchronized List<Entry> top(int n) {
+        List<Entry> result = new ArrayList<>(Math.min(Math.max(n, 0), best.size()));
+        for (int score = buckets.size() - 1; score >= 0 && result.size() < n; score--) {
+            buckets.get(score).collect(result, n);
+        }
+        return result;
+    }
+
+    private static boolean better(Entry candidate, Entry current) {
+        if (candidate.recordId == current.recordId) {
+            return false;
+        }
+        if (candidate.score != current.score) {
+            return candidate.score > current.score;
+        }
+        return BUCKET_ORDER.compare(candidate, current) < 0;
+    }
+
+    private void remove(Entry entry) {
+        if (buckets.get(entry.score).remove(entry)) {
+            add(entry.score, -1);
+        }
+    }
+
+    // 分数不高于 score 的人数
+    private long prefix(int score) {
+        long sum = 0;
+        for (int i = score + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    private void add(int score, long delta) {
+        for (int i = score + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    private void allocate(int capacity) {
+        tree = new long[capacity + 1];
+        buckets = new ArrayList<>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            buckets.add(new Bucket());
+        }
+    }
+
+    // 出现超过总分的成绩（试卷分值被修改）时扩容并按桶重建树
+    private void grow(int minCapacity) {
+        List<Bucket> old = buckets;
+        allocate(Math.max(minCapacity, old.size() * 2));
+        for (int score = 0; score < old.size(); score++) {
+            buckets.set(score, old.get(score));
+            add(score, old.get(score).size());
+        }
+    }
+
+    // 同分的成绩，按 BUCKET_ORDER 排序的树堆（treap），节点记录子树大小
+    private static final class Bucket {
+        private Node root;
+
+        int size() {
+            return size(root);
+        }
+
+        void insert(Entry entry) {
+            Node[] parts = split(root, entry, false);
+            root = merge(merge(parts[0], new Node(entry)), parts[1]);
+        }
+
+        boolean remove(Entry entry) {
+            Node[] lower = split(root, entry, false);
+            Node[] upper = split(lower[1], entry, true);
+            root = merge(lower[0], upper[1]);
+            return upper[0] != null;
+        }
+
+        // 排在 entry 之前的成绩数
+        int countBefore(Entry entry) {
+            int count = 0;
+            Node node = root;
+            while (node != null) {
+                if (BUCKET_ORDER.compare(entry, node.entry) <= 0) {
+                    node = node.left;
+                } else {
+                    count += size(node.left) + 1;
+                    node = node.right;
+                }
+            }
+            return count;
+        }
+
+        // 按序追加到 result，直到 result 有 n 个
+        void collect(List<Entry> result, int n) {
+            collect(root, result, n);
+        }
+
+        private static void collect(Node node, List<Entry> result, int n) {
+            if (node == null || result.size() >= n) {
+                return;
+            }
+            collect(node.left, result, n);
+            if (result.size() < n) {
+                result.add(node.entry);
+                collect(node.right, result, n);
+            }
+        }
+
+        // 拆成排在 key 之前的和其余的；inclusive 为 true 时 key 本身也归前一部分
+        private static Node[] split(Node node, Entry key, boolean inclusive) {
+            if (node == null) {
+                return new Node[2];
+            }
+            int cmp = BUCKET_ORDER.compare(node.entry, key);
+            if (cmp < 0 || (inclusive && cmp == 0)) {
+                Node[] parts = split(node.right, key, inclusive);
+                node.right = parts[0];
+                node.update();
+                parts[0] = node;
+                return parts;
+            }
+            Node[] parts = split(node.left, key, inclusive);
+            node.left = parts[1];
+            node.update();
+            parts[1] = node;
+            return parts;
+        }
+
+        // left 中的成绩都排在 right 之前
+        private static Node merge(Node left, Node right) {
+            if (left == null) {
+                return right;
+            }
+            if (right == null) {
+                return left;
+            }
+            if (left.priority > right.priority) {
+                left.right = merge(left.right, right);
+                left.update();
+                return left;
+            }
+            right.left = merge(left, right.left);
+            right.update();
+            return right;
+        }
+
+        private static int size(Node node) {
+            return node == null ? 0 : node.size;
+        }
+    }
+
+    private static final class Node {
+        private final Entry entry;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private int size = 1;
+        private Node left;
+        private Node right;
+
+        private Node(Entry entry) {
+            this.entry = entry;
+        }
+
+        void update() {
+            size = 1 + Bucket.size(left) + Bucket.size(right);
+        }
+    }
+
+    public static final class Entry {
+        private final long userId;
+        private final long recordId;
+        private final int score;
+        private final long submitTime;
+
+        private Entry(long userId, long recordId, int score, long submitTime) {
+            this.userId = userId;
+            this.recordId = recordId;
+            this.score = score;
+            this.submitTime = submitTime;
+        }
+
+        public long getUserId() {
+            return userId;
+        }
+
+        public long getRecordId() {
+            return recordId;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public long getSubmitTime() {
+            return submitTime;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.exam.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * 开启 exam.datasource.limit.enabled 时，用 ConnectionLimitingDataSource 包装连接池，
+ * 许可数默认取 Hikari 的 maximum-pool-size。虚拟线程配置（application-vt.yml）中默认开启。
+ */
+@Configuration
+@ConditionalOnProperty(name = "exam.datasource.limit.enabled", havingValue = "true")
+public class DataSourceLimitConfig {
+
+    @Bean
+    public static BeanPostProcessor connectionLimitingPostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // 读写分离时外层的延迟连接代理不限流，由主从两个连接池各自限流
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConnectionLimitingDataSource
+                        || bean instanceof LazyConnectionDataSourceProxy) {
+                    return bean;
+                }
+                int permits = environment.getProperty("exam.datasource.limit.permits", Integer.class, 0);
+                if (permits <= 0) {
+                    permits = bean instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : 10;
+                }
+                long timeout = environment.getProperty("exam.datasource.limit.acquire-timeout-ms", Long.class, 30000L);
+                return new ConnectionLimitingDataSource(dataSource, permits, timeout);
+            }
+        };
+    }
+}
@@ -0,0 +1,153 @@
+package com.exam.config;
+
+import com.exam.util.AuthUtil;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 读写分离的路由规则
+ * 只读事务（@Transactional(readOnly = true)）在从库可用时读从库，其余一律走主库。
+ * 学生开始考试或交卷后的 sticky-ms 内，该学生的只读查询仍走主库，保证读到自己刚写入的数据。
+ * 粘滞状态同时以 sticky-ms 过期的 cookie 下发给客户端，多节点部署时后续请求落到其他节点也走主库。
+ * 从库状态由 ReplicaHealthChecker 定时更新，延迟超过 max-lag-ms 或连接失败时暂停使用。
+ * 未开启 exam.datasource.replica.enabled 时只是空操作。
+ */
+@Component
+public class DataSourceRouting {
+
+    public static final String STICKY_COOKIE = "exam_read_primary";
+
+    @Value("${exam.datasource.replica.enabled:false}")
+    private boolean enabled;
+
+    @Value("${exam.datasource.replica.sticky-ms:5000}")
+    private long stickyMillis;
+
+    @Value("${exam.datasource.replica.max-lag-ms:2000}")
+    private long maxLagMillis;
+
+    // 用户ID -> 该时间之前只读主库
+    private final Map<Long, Long> stickyUntil = new ConcurrentHashMap<>();
+    private volatile boolean replicaUp;
+    private volatile long replicaLagMillis = -1;
+
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryReads = new LongAdder();
+    private final LongAdder stickyReads = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    // 当前用户写入后调用
+    public void markWritten(Long userId) {
+        if (enabled && userId != null) {
+            stickyUntil.put(userId, System.currentTimeMillis() + stickyMillis);
+            HttpServletResponse response = currentResponse();
+            if (response != null && !response.isCommitted()) {
+                // 由浏览器按 Max-Age 过期，各节点只判断是否存在，不受节点间时钟偏差影响
+                ResponseCookie cookie = ResponseCookie.from(STICKY_COOKIE, "1")
+                        .path("/api")
+                        .httpOnly(true)
+                        .sameSite("Lax")
+                        .maxAge(Duration.ofSeconds(Math.max(1, (stickyMillis + 999) / 1000)))
+                        .build();
+                response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+            }
+        }
+    }
+
+    // 当前线程的查询是否读从库
+    public boolean useReplica() {
+        if (!enabled || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return false;
+        }
+        if (!replicaUp) {
+            primaryReads.increment();
+            return false;
+        }
+        if (hasStickyCookie()) {
+            stickyReads.increment();
+            return false;
+        }
+        Long userId = AuthUtil.currentUserIdOrNull();
+        if (userId != null) {
+            Long until = stickyUntil.get(userId);
+            if (until != null) {
+                if (until > System.currentTimeMillis()) {
+                    stickyReads.increment();
+                    return false;
+                }
+                stickyUntil.remove(userId, until);
+            }
+        }
+        replicaReads.increment();
+        return true;
+    }
+
+    // 健康检查结果，lagMillis 为负表示无法获取延迟（从库不可用或复制中断）
+    public void replicaStatus(boolean reachable, long lagMillis) {
+        replicaLagMillis = lagMillis;
+        replicaUp = reachable && lagMillis >= 0 && lagMillis <= maxLagMillis;
+    }
+
+    // 从库取连接失败，退回主库并在下次健康检查前停用从库
+    public void replicaFailed() {
+        replicaUp = false;
+        fallbacks.increment();
+    }
+
+    // 清理已过期的粘滞记录
+    public void expireSticky() {
+        long now = System.currentTimeMillis();
+        stickyUntil.values().removeIf(until -> until <= now);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("replicaUp", replicaUp);
+        stats.put("replicaLagMillis", replicaLagMillis);
+        stats.put("stickyUsers", stickyUntil.size());
+        stats.put("replicaReads", replicaReads.sum());
+        stats.put("primaryReads", primaryReads.sum());
+        stats.put("stickyReads", stickyReads.sum());
+        stats.put("fallbacks", fallbacks.sum());
+        return stats;
+    }
+
+    private static boolean hasStickyCookie() {
+        HttpServletRequest request = currentRequest();
+        Cookie[] cookies = request == null ? null : request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (STICKY_COOKIE.equals(cookie.getName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // 非请求线程（评分、同步等后台任务）返回null
+    private static HttpServletRequest currentRequest() {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                ? attributes.getRequest() : null;
+    }
+
+    private static HttpServletResponse currentResponse() {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                ? attributes.getResponse() : null;
+    }
+}
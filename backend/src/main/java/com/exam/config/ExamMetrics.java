@@ -0,0 +1,96 @@
+package com.exam.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 考试热点路径计时器
+ * 启动时创建，标签取值固定（低基数），发布直方图以便在 Prometheus 中计算 p50/p99。
+ */
+@Component
+public class ExamMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Timer examStart;
+    private final Timer submitSync;
+    private final Timer submitAsync;
+    private final Timer grade;
+    private final Timer paperQuestions;
+    private final Timer randomByType;
+    private final Timer randomByModule;
+    private final Timer loginSuccess;
+    private final Timer loginFailure;
+    private final Timer loginQueueWait;
+    private final Timer loginHash;
+
+    public ExamMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        examStart = timer("exam.start", "开始考试");
+        submitSync = timer("exam.submit", "交卷", "mode", "sync");
+        submitAsync = timer("exam.submit", "交卷", "mode", "async");
+        grade = timer("exam.grade", "评分（calculateScore）");
+        paperQuestions = timer("exam.paper.questions", "查询试卷题目");
+        randomByType = timer("exam.questions.random", "随机抽题", "by", "type");
+        randomByModule = timer("exam.questions.random", "随机抽题", "by", "module");
+        loginSuccess = timer("exam.login", "登录", "outcome", "success");
+        loginFailure = timer("exam.login", "登录", "outcome", "failure");
+        loginQueueWait = timer("exam.login.queue.wait", "登录哈希任务排队时间");
+        loginHash = timer("exam.login.hash", "登录哈希计算时间");
+    }
+
+    public Timer examStart() {
+        return examStart;
+    }
+
+    public Timer submit(boolean async) {
+        return async ? submitAsync : submitSync;
+    }
+
+    public Timer grade() {
+        return grade;
+    }
+
+    public Timer paperQuestions() {
+        return paperQuestions;
+    }
+
+    public Timer randomQuestions(boolean byModule) {
+        return byModule ? randomByModule : randomByType;
+    }
+
+    public Timer login(boolean success) {
+        return success ? loginSuccess : loginFailure;
+    }
+
+    public Timer loginQueueWait() {
+        return loginQueueWait;
+    }
+
+    public Timer loginHash() {
+        return loginHash;
+    }
+
+    public void loginRejected() {
+        registry.counter("exam.login.rejected").increment();
+    }
+
+    // 重复交卷（重试或并发提交），直接返回已保存的结果
+    public void submitDuplicate(boolean async) {
+        registry.counter("exam.submit.duplicate", "mode", async ? "async" : "sync").increment();
+    }
+
+    private Timer timer(String name, String description, String... tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.99)
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+    }
+}
@@ -0,0 +1,48 @@
+package com.exam.config;
+
+import com.exam.util.JwtUtil;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * JWT认证过滤器
+ * 每个请求验证一次 Bearer token，把用户ID（principal）和角色（ROLE_TEACHER / ROLE_STUDENT）写入安全上下文。
+ * token 无效时不设置认证信息，由授权规则返回401。
+ */
+@RequiredArgsConstructor
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    public static final String ROLE_TEACHER = "ROLE_TEACHER";
+    public static final String ROLE_STUDENT = "ROLE_STUDENT";
+
+    private static final String BEARER = "Bearer ";
+
+    private final JwtUtil jwtUtil;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.startsWith(BEARER)) {
+            JwtUtil.TokenInfo info = jwtUtil.verify(header.substring(BEARER.length()).trim());
+            if (info != null) {
+                String role = Integer.valueOf(1).equals(info.getRole()) ? ROLE_TEACHER : ROLE_STUDENT;
+                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                        info.getUserId(), null, List.of(new SimpleGrantedAuthority(role)));
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            }
+        }
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,69 @@
+package com.exam.config;
+
+import com.exam.cache.AnswerKeyCache;
+import com.exam.cache.PaperPayloadCache;
+import com.exam.cache.QuestionCache;
+import com.exam.cache.QuestionSearchIndex;
+import com.exam.service.AnswerAutosaveBuffer;
+import com.exam.service.CacheSyncPoller;
+import com.exam.service.ExamGradingPipeline;
+import com.exam.service.ExamLeaderboard;
+import com.exam.service.ExamStatistics;
+import com.exam.service.PasswordHashPool;
+import com.exam.util.JwtUtil;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 把各缓存、队列已有的 stats() 统计注册为 Micrometer 仪表，随 /actuator/prometheus 一起导出
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder examStatsBinder(QuestionCache questionCache, AnswerKeyCache answerKeyCache,
+                                       PaperPayloadCache paperPayloadCache, QuestionSearchIndex questionSearchIndex,
+                                       ExamGradingPipeline gradingPipeline, AnswerAutosaveBuffer autosaveBuffer,
+                                       PasswordHashPool passwordHashPool, JwtUtil jwtUtil,
+                                       ExamStatistics examStatistics, ExamLeaderboard examLeaderboard,
+                                       DataSourceRouting dataSourceRouting, CacheSyncPoller cacheSyncPoller,
+                                       MybatisMetricsInterceptor mybatisMetricsInterceptor) {
+        return registry -> {
+            gauge(registry, "exam.question.cache.size", questionCache::stats, "size");
+            gauge(registry, "exam.question.cache.hit.rate", questionCache::stats, "hitRate");
+            gauge(registry, "exam.answer.keys.size", answerKeyCache::stats, "size");
+            gauge(registry, "exam.paper.payloads.size", paperPayloadCache::stats, "size");
+            gauge(registry, "exam.paper.payloads.bytes", paperPayloadCache::stats, "bytes");
+            gauge(registry, "exam.search.index.terms", questionSearchIndex::stats, "terms");
+            gauge(registry, "exam.grading.queue.depth", gradingPipeline::stats, "queueDepth");
+            gauge(registry, "exam.autosave.buffered", autosaveBuffer::stats, "bufferedRecords");
+            gauge(registry, "exam.autosave.dirty", autosaveBuffer::stats, "dirtyRecords");
+            gauge(registry, "exam.login.pool.active", passwordHashPool::stats, "active");
+            gauge(registry, "exam.login.pool.queued", passwordHashPool::stats, "queued");
+            gauge(registry, "exam.jwt.cache.size", jwtUtil::stats, "size");
+            gauge(registry, "exam.jwt.cache.hit.rate", jwtUtil::stats, "hitRate");
+            gauge(registry, "exam.stats.pending.questions", examStatistics::stats, "pendingQuestions");
+            gauge(registry, "exam.leaderboard.papers", examLeaderboard::stats, "papers");
+            gauge(registry, "exam.leaderboard.entries", examLeaderboard::stats, "entries");
+            gauge(registry, "exam.datasource.replica.lag", dataSourceRouting::stats, "replicaLagMillis");
+            gauge(registry, "exam.cache.sync.lag", cacheSyncPoller::stats, "lastLagMillis");
+            gauge(registry, "exam.cache.sync.staleness", cacheSyncPoller::stats, "stalenessMillis");
+            FunctionCounter.builder("mybatis.slow.statements", mybatisMetricsInterceptor,
+                    MybatisMetricsInterceptor::getSlowStatements).register(registry);
+        };
+    }
+
+    private static void gauge(MeterRegistry registry, String name, Supplier<Map<String, Object>> stats, String key) {
+        Gauge.builder(name, () -> {
+            Object value = stats.get().get(key);
+            return value instanceof Number number ? number.doubleValue() : Double.NaN;
+        }).register(registry);
+    }
+}
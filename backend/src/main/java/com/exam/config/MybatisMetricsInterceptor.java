@@ -0,0 +1,160 @@
+package com.exam.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mapper调用计时与慢SQL日志
+ * 每条语句记录到 mybatis.statement 计时器，标签为 mapper、method、type（数量固定，低基数）。
+ * 批量执行器中 update 只是加入批次，真正执行在 flushStatements，按批次内各语句均摊耗时记为 type=batch。
+ * 超过阈值的语句计数并输出日志；同一语句在采样窗口内只输出一次，附带被省略的次数。
+ */
+@Slf4j
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class,
+                        BoundSql.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class}),
+        @Signature(type = Executor.class, method = "flushStatements", args = {})
+})
+public class MybatisMetricsInterceptor implements Interceptor {
+
+    // 分页插件会在拦截链内再次调用 query，只计最外层一次
+    private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final ObjectProvider<MeterRegistry> registryProvider;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    // 语句ID -> 采样窗口内被省略的慢SQL次数，及窗口开始时间
+    private final Map<String, long[]> slowWindows = new ConcurrentHashMap<>();
+    private final AtomicLong slowStatements = new AtomicLong();
+
+    @Value("${exam.sql.slow-threshold-ms:200}")
+    private long slowThresholdMillis;
+
+    @Value("${exam.sql.slow-log-window-ms:10000}")
+    private long slowLogWindowMillis;
+
+    public MybatisMetricsInterceptor(ObjectProvider<MeterRegistry> registryProvider) {
+        this.registryProvider = registryProvider;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        int[] depth = DEPTH.get();
+        if (depth[0] > 0) {
+            return invocation.proceed();
+        }
+        depth[0]++;
+        long start = System.nanoTime();
+        Object result = null;
+        try {
+            result = invocation.proceed();
+            return result;
+        } finally {
+            depth[0]--;
+            long elapsed = System.nanoTime() - start;
+            if ("flushStatements".equals(invocation.getMethod().getName())) {
+                onFlush(result, elapsed);
+            } else {
+                MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+                String type = statement.getSqlCommandType().name().toLowerCase();
+                timer(statement, type).record(elapsed, TimeUnit.NANOSECONDS);
+                if (elapsed >= slowThresholdMillis * 1_000_000L) {
+                    onSlow(statement, invocation.getArgs()[1], elapsed, 0);
+                }
+            }
+        }
+    }
+
+    public long getSlowStatements() {
+        return slowStatements.get();
+    }
+
+    // 执行失败时没有批次结果，不计
+    @SuppressWarnings("unchecked")
+    private void onFlush(Object result, long elapsedNanos) {
+        if (!(result instanceof List<?> list) || list.isEmpty()) {
+            return;
+        }
+        List<BatchResult> batches = (List<BatchResult>) list;
+        long share = elapsedNanos / batches.size();
+        int rows = 0;
+        for (BatchResult batch : batches) {
+            timer(batch.getMappedStatement(), "batch").record(share, TimeUnit.NANOSECONDS);
+            rows += batch.getParameterObjects().size();
+        }
+        if (elapsedNanos >= slowThresholdMillis * 1_000_000L) {
+            BatchResult first = batches.get(0);
+            List<Object> parameters = first.getParameterObjects();
+            onSlow(first.getMappedStatement(), parameters.isEmpty() ? null : parameters.get(0), elapsedNanos, rows);
+        }
+    }
+
+    private Timer timer(MappedStatement statement, String type) {
+        return timers.computeIfAbsent(statement.getId() + ":" + type, key -> {
+            String id = statement.getId();
+            int dot = id.lastIndexOf('.');
+            String mapper = id.substring(id.lastIndexOf('.', dot - 1) + 1, dot);
+            return Timer.builder("mybatis.statement")
+                    .description("Mapper语句执行耗时")
+                    .tag("mapper", mapper)
+                    .tag("method", id.substring(dot + 1))
+                    .tag("type", type)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(registryProvider.getObject());
+        });
+    }
+
+    private void onSlow(MappedStatement statement, Object parameter, long elapsedNanos, int batchRows) {
+        slowStatements.incrementAndGet();
+        long now = System.currentTimeMillis();
+        long[] window = slowWindows.computeIfAbsent(statement.getId(), id -> new long[]{0, 0});
+        long suppressed;
+        synchronized (window) {
+            if (now - window[1] < slowLogWindowMillis) {
+                window[0]++;
+                return;
+            }
+            suppressed = window[0];
+            window[0] = 0;
+            window[1] = now;
+        }
+        String sql = statement.getBoundSql(parameter).getSql().replaceAll("\\s+", " ");
+        if (batchRows > 0) {
+            log.warn("慢批量SQL {} 共 {} 条耗时 {}ms（上个窗口内另有 {} 次）: {}", statement.getId(), batchRows,
+                    elapsedNanos / 1_000_000, suppressed, sql);
+        } else {
+            log.warn("慢SQL {} 耗时 {}ms（上个窗口内另有 {} 次）: {}", statement.getId(), elapsedNanos / 1_000_000,
+                    suppressed, sql);
+        }
+    }
+}
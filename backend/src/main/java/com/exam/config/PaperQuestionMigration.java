@@ -0,0 +1,32 @@
+package com.exam.config;
+
+import com.exam.service.PaperQuestionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * 启动时把旧版逗号分隔的 t_paper.question_ids 迁移到 t_paper_question
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PaperQuestionMigration implements ApplicationRunner {
+    
+    private final PaperQuestionService paperQuestionService;
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            int migrated = paperQuestionService.migrateLegacyQuestionIds();
+            if (migrated > 0) {
+                log.info("已迁移 {} 份试卷的题目列表到 t_paper_question", migrated);
+            }
+        } catch (Exception e) {
+            // 旧列已删除或表结构未升级时跳过
+            log.warn("试卷题目迁移跳过: {}", e.getMessage());
+        }
+    }
+}
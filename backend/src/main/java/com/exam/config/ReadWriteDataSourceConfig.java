@@ -0,0 +1,69 @@
+package com.exam.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * 开启 exam.datasource.replica.enabled 时配置主从两个连接池：
+ * 主库沿用 spring.datasource，从库取 exam.datasource.replica.url（用户名、密码、驱动默认与主库相同），
+ * 连接池参数分别在 spring.datasource.hikari 和 exam.datasource.replica.hikari 下配置。
+ * 应用使用的 dataSource 为 LazyConnectionDataSourceProxy + ReadWriteRoutingDataSource；
+ * 开启连接数限流时两个连接池各自按自身大小限流（见 DataSourceLimitConfig）。
+ */
+@Configuration
+@ConditionalOnProperty(name = "exam.datasource.replica.enabled", havingValue = "true")
+public class ReadWriteDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("exam-primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("exam.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties, Environment environment) {
+        String url = environment.getProperty("exam.datasource.replica.url");
+        if (url == null || url.isBlank()) {
+            throw new IllegalStateException("开启读写分离时必须配置 exam.datasource.replica.url");
+        }
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(environment.getProperty("exam.datasource.replica.username", properties.determineUsername()))
+                .password(environment.getProperty("exam.datasource.replica.password", properties.determinePassword()))
+                .build();
+        dataSource.setPoolName("exam-replica");
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica, DataSourceRouting routing) {
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replica, routing));
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public ReplicaHealthChecker replicaHealthChecker(@Qualifier("replicaDataSource") DataSource replica,
+                                                     DataSourceRouting routing, Environment environment) {
+        return new ReplicaHealthChecker(replica, routing,
+                environment.getProperty("exam.datasource.replica.lag-query", ""),
+                environment.getProperty("exam.datasource.replica.health-check-interval-ms", Long.class, 2000L),
+                environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false));
+    }
+}
@@ -0,0 +1,64 @@
+package com.exam.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * 主从路由数据源，按 DataSourceRouting 的判断选择主库或从库。
+ * 需包在 LazyConnectionDataSourceProxy 里使用：事务开始时只读标记尚未设置，延迟到第一条语句执行时才取真实连接。
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+
+    private final DataSource primary;
+    private final DataSourceRouting routing;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, DataSourceRouting routing) {
+        this.primary = primary;
+        this.routing = routing;
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return routing.useReplica() ? REPLICA : PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        DataSource target = determineTargetDataSource();
+        if (target == primary) {
+            return primary.getConnection();
+        }
+        try {
+            return target.getConnection();
+        } catch (SQLException e) {
+            routing.replicaFailed();
+            logger.warn("从库连接失败，改用主库: " + e.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        DataSource target = determineTargetDataSource();
+        if (target == primary) {
+            return primary.getConnection(username, password);
+        }
+        try {
+            return target.getConnection(username, password);
+        } catch (SQLException e) {
+            routing.replicaFailed();
+            logger.warn("从库连接失败，改用主库: " + e.getMessage());
+            return primary.getConnection(username, password);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.exam.config;
+
+import com.exam.util.ThreadFactories;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 从库健康检查
+ * 定时取一个从库连接并执行 lag-query 得到复制延迟（秒），结果交给 DataSourceRouting。
+ * lag-query 为空时只检查连接是否可用；返回结果中有 Seconds_Behind_Source / Seconds_Behind_Master 列时读取该列
+ * （MySQL 的 SHOW REPLICA STATUS），否则读第一列，值为NULL视为复制中断。
+ */
+@Slf4j
+public class ReplicaHealthChecker {
+
+    private final DataSource replica;
+    private final DataSourceRouting routing;
+    private final String lagQuery;
+    private final long intervalMillis;
+    private final boolean virtualThreads;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean lastReachable = true;
+
+    public ReplicaHealthChecker(DataSource replica, DataSourceRouting routing, String lagQuery, long intervalMillis,
+                                boolean virtualThreads) {
+        this.replica = replica;
+        this.routing = routing;
+        this.lagQuery = lagQuery;
+        this.intervalMillis = intervalMillis;
+        this.virtualThreads = virtualThreads;
+    }
+
+    public void start() {
+        check();
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                r -> ThreadFactories.newThread("exam-replica-health", r, virtualThreads));
+        scheduler.scheduleWithFixedDelay(this::check, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void check() {
+        long lagMillis;
+        try (Connection connection = replica.getConnection()) {
+            lagMillis = lagMillis(connection);
+            if (!lastReachable) {
+                log.info("从库已恢复，复制延迟 {} ms", lagMillis);
+            }
+            lastReachable = true;
+            routing.replicaStatus(true, lagMillis);
+        } catch (Exception e) {
+            if (lastReachable) {
+                log.warn("从库不可用，只读查询改走主库: {}", e.getMessage());
+            }
+            lastReachable = false;
+            routing.replicaStatus(false, -1);
+        }
+        routing.expireSticky();
+    }
+
+    private long lagMillis(Connection connection) throws Exception {
+        if (lagQuery == null || lagQuery.isBlank()) {
+            return connection.isValid(2) ? 0 : -1;
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(lagQuery)) {
+            if (!rs.next()) {
+                return -1;
+            }
+            int column = 1;
+            ResultSetMetaData meta = rs.getMetaData();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                String label = meta.getColumnLabel(i);
+                if ("Seconds_Behind_Source".equalsIgnoreCase(label) || "Seconds_Behind_Master".equalsIgnoreCase(label)) {
+                    column = i;
+                }
+            }
+            long seconds = rs.getLong(column);
+            return rs.wasNull() ? -1 : seconds * 1000;
+        }
+    }
+}
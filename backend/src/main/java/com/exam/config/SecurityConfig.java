@@ -1,12 +1,18 @@
 package com.exam.config;
 
+import com.exam.util.JwtUtil;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -16,21 +22,37 @@ import java.util.Arrays;
 @EnableWebSecurity
 public class SecurityConfig {
 
+    // bcrypt 强度可配置，已有的低强度哈希在登录成功时升级
     @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BCryptPasswordEncoder passwordEncoder(@Value("${exam.login.bcrypt-strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, JwtUtil jwtUtil,
+                                           @Value("${management.server.port:-1}") int managementPort) throws Exception {
         http
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .csrf(csrf -> csrf.disable())
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .addFilterBefore(new JwtAuthenticationFilter(jwtUtil), UsernamePasswordAuthenticationFilter.class)
+            .exceptionHandling(ex -> ex.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
             .authorizeHttpRequests(auth -> auth
-                .requestMatchers("/api/auth/**").permitAll()
-                .requestMatchers("/api/**").permitAll()
-                .anyRequest().permitAll()
+                .requestMatchers(HttpMethod.OPTIONS).permitAll()
+                .requestMatchers("/api/auth/login", "/api/auth/register", "/error").permitAll()
+                // 只有健康检查公开；Prometheus 抓取需要教师token，配置了独立管理端口（只在内网开放）时该端口上免token
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers(request -> managementPort > 0 && request.getLocalPort() == managementPort
+                        && "/actuator/prometheus".equals(request.getRequestURI())).permitAll()
+                .requestMatchers("/actuator/**").hasRole("TEACHER")
+                // 管理功能仅限教师
+                .requestMatchers("/api/users/**", "/api/monitor/**", "/api/stats/**",
+                        "/api/exam-records/export").hasRole("TEACHER")
+                .requestMatchers(HttpMethod.POST, "/api/questions", "/api/questions/import", "/api/papers",
+                        "/api/exam-records/compact-answers").hasRole("TEACHER")
+                .requestMatchers(HttpMethod.PUT, "/api/questions/**", "/api/papers/**").hasRole("TEACHER")
+                .requestMatchers(HttpMethod.DELETE, "/api/questions/**", "/api/papers/**").hasRole("TEACHER")
+                .anyRequest().authenticated()
             );
         return http.build();
     }
@@ -2,11 +2,18 @@ package com.exam.controller;
 
 import com.exam.entity.User;
 import com.exam.service.UserService;
+import com.exam.util.AuthUtil;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -16,12 +23,23 @@ public class AuthController {
     
     private final UserService userService;
     
+    @Value("${exam.login.retry-after-seconds:2}")
+    private int retryAfterSeconds;
+    
+    // 异步返回：密码校验期间不占用请求线程；哈希线程池饱和时返回503并提示重试时间
     @PostMapping("/login")
-    public Map<String, Object> login(@RequestBody Map<String, String> params) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> login(@RequestBody Map<String, String> params) {
         String username = params.get("username");
         String password = params.get("password");
-        Map<String, Object> result = userService.login(username, password);
-        return result;
+        try {
+            return userService.login(username, password).thenApply(ResponseEntity::ok);
+        } catch (RejectedExecutionException e) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("message", "登录人数较多，请稍后重试");
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                    .body(result));
+        }
     }
     
     @PostMapping("/register")
@@ -32,9 +50,16 @@ public class AuthController {
         return result;
     }
     
+    // 当前登录用户信息，用户ID来自认证过滤器验证过的token
     @GetMapping("/info")
-    public Map<String, Object> getUserInfo(@RequestHeader("Authorization") String token) {
-        // 从token解析用户信息（简化处理）
-        return new HashMap<>();
+    public Map<String, Object> getUserInfo() {
+        User user = userService.getById(AuthUtil.currentUserId());
+        if (user == null) {
+            throw new RuntimeException("用户不存在");
+        }
+        user.setPassword(null);
+        Map<String, Object> result = new HashMap<>();
+        result.put("user", user);
+        return result;
     }
 }
@@ -1,11 +1,23 @@
 package com.exam.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.exam.dto.ExamRecordSummary;
 import com.exam.entity.ExamRecord;
+import com.exam.service.ExamRecordExporter;
 import com.exam.service.ExamRecordService;
+import com.exam.util.AuthUtil;
+import com.exam.util.KeysetPage;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -16,28 +28,73 @@ import java.util.Map;
 public class ExamRecordController {
     
     private final ExamRecordService examRecordService;
+    private final ExamRecordExporter examRecordExporter;
     
     @GetMapping
     public Map<String, Object> getExamRecords(
             @RequestParam(defaultValue = "1") Integer page,
             @RequestParam(defaultValue = "10") Integer limit,
             @RequestParam(required = false) Long userId,
-            @RequestParam(required = false) Integer status) {
-        Page<ExamRecord> pageResult = examRecordService.getExamRecordPage(page, limit, userId, status);
+            @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            @RequestParam(defaultValue = "summary") String fields) {
+        // 学生只能查看自己的记录
+        if (!AuthUtil.isTeacher()) {
+            userId = AuthUtil.currentUserId();
+        }
+        // 默认返回摘要列，fields=detail 时返回整行
+        boolean detail = "detail".equals(fields);
+        if (after != null) {
+            // 游标分页：不执行OFFSET，total 仅在 withTotal=true 时返回
+            KeysetPage<ExamRecord> keysetPage = examRecordService.getExamRecordKeysetPage(after, limit, userId, status, withTotal, detail);
+            Map<String, Object> result = new HashMap<>();
+            result.put("list", detail ? keysetPage.getRecords() : ExamRecordSummary.from(keysetPage.getRecords()));
+            result.put("nextCursor", keysetPage.getNextCursor());
+            if (keysetPage.getTotal() != null) {
+                result.put("total", keysetPage.getTotal());
+            }
+            return result;
+        }
+        
+        Page<ExamRecord> pageResult = examRecordService.getExamRecordPage(page, limit, userId, status, detail);
         Map<String, Object> result = new HashMap<>();
-        result.put("list", pageResult.getRecords());
+        result.put("list", detail ? pageResult.getRecords() : ExamRecordSummary.from(pageResult.getRecords()));
         result.put("total", pageResult.getTotal());
         return result;
     }
     
+    // 流式导出考试记录，format 为 csv 或 ndjson
+    @GetMapping("/export")
+    public void exportExamRecords(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) Long paperId,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            HttpServletResponse response) throws IOException {
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentType(ndjson ? "application/x-ndjson" : "text/csv");
+        response.setHeader("Content-Disposition",
+                "attachment; filename=exam-records." + (ndjson ? "ndjson" : "csv"));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        if (ndjson) {
+            examRecordExporter.exportNdjson(paperId, userId, status, from, to, writer);
+        } else {
+            examRecordExporter.exportCsv(paperId, userId, status, from, to, writer);
+        }
+    }
+    
     @GetMapping("/{id}")
     public ExamRecord getExamRecord(@PathVariable Long id) {
-        return examRecordService.getById(id);
+        return examRecordService.getRecordWithAutosave(id, AuthUtil.ownerScope());
     }
     
     @PostMapping("/start")
     public Map<String, Object> startExam(@RequestBody Map<String, Long> params) {
-        Long userId = params.get("userId");
+        Long userId = AuthUtil.currentUserId();
         Long paperId = params.get("paperId");
         ExamRecord record = examRecordService.startExam(userId, paperId);
         Map<String, Object> result = new HashMap<>();
@@ -45,16 +102,58 @@ public class ExamRecordController {
         return result;
     }
     
+    // 自动保存作答，body: {"answers": {"题目ID": "A"}}，只需提交变化的题目
+    @PutMapping("/{id}/answers")
+    public Map<String, Object> autosaveAnswers(
+            @PathVariable Long id,
+            @RequestBody Map<String, Map<String, String>> params) {
+        Map<String, String> answers = params.get("answers");
+        int answered = examRecordService.autosaveAnswers(id, answers == null ? Map.of() : answers,
+                AuthUtil.ownerScope());
+        Map<String, Object> result = new HashMap<>();
+        result.put("message", "已保存");
+        result.put("answered", answered);
+        return result;
+    }
+    
+    // 客户端为一次交卷生成 Idempotency-Key，超时重试时带同一个值，重复提交返回首次交卷的结果
     @PostMapping("/{id}/submit")
-    public Map<String, Object> submitExam(@PathVariable Long id, @RequestBody Map<String, String> params) {
+    public Map<String, Object> submitExam(
+            @PathVariable Long id,
+            @RequestBody Map<String, String> params,
+            @RequestParam(defaultValue = "false") boolean async,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey != null && idempotencyKey.length() > 64) {
+            throw new RuntimeException("Idempotency-Key 不能超过64个字符");
+        }
         String answers = params.get("answers");
-        examRecordService.submitExam(id, answers);
-        
-        ExamRecord record = examRecordService.getById(id);
+        if (async) {
+            // 异步评分：立即返回，分数通过 /{id}/result 轮询
+            Map<String, Object> result = examRecordService.submitExamAsync(id, answers, AuthUtil.ownerScope(),
+                    idempotencyKey);
+            if (Boolean.TRUE.equals(result.get("duplicate"))) {
+                result.putIfAbsent("message", "已提交");
+            } else {
+                result.put("message", "提交成功，评分中");
+            }
+            return result;
+        }
         
-        Map<String, Object> result = new HashMap<>();
-        result.put("message", "提交成功");
-        result.put("score", record.getScore());
+        Map<String, Object> result = examRecordService.submitExam(id, answers, AuthUtil.ownerScope(), idempotencyKey);
+        result.putIfAbsent("message", Boolean.TRUE.equals(result.get("duplicate")) ? "已提交" : "提交成功");
         return result;
     }
+    
+    // 把旧JSON作答分批转为二进制编码（教师），按返回的 lastId 继续下一批，scanned 为0时结束
+    @PostMapping("/compact-answers")
+    public Map<String, Object> compactAnswers(
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "1000") int limit) {
+        return examRecordService.compactAnswers(afterId, limit);
+    }
+    
+    @GetMapping("/{id}/result")
+    public Map<String, Object> getSubmitResult(@PathVariable Long id) {
+        return examRecordService.getSubmitResult(id, AuthUtil.ownerScope());
+    }
 }
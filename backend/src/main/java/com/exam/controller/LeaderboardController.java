@@ -0,0 +1,38 @@
+package com.exam.controller;
+
+import com.exam.service.ExamLeaderboard;
+import com.exam.util.AuthUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/leaderboard")
+@RequiredArgsConstructor
+@CrossOrigin
+public class LeaderboardController {
+    
+    private final ExamLeaderboard examLeaderboard;
+    
+    // 试卷前 limit 名，每名学生取最好成绩，同分先交卷者在前
+    @GetMapping("/papers/{paperId}")
+    public List<Map<String, Object>> getTop(
+            @PathVariable Long paperId,
+            @RequestParam(defaultValue = "50") int limit) {
+        return examLeaderboard.top(paperId, limit);
+    }
+    
+    // 名次与百分位，学生只能查询自己，教师可指定 userId
+    @GetMapping("/papers/{paperId}/rank")
+    public Map<String, Object> getRank(
+            @PathVariable Long paperId,
+            @RequestParam(required = false) Long userId) {
+        Long owner = AuthUtil.ownerScope();
+        if (owner != null || userId == null) {
+            userId = AuthUtil.currentUserId();
+        }
+        return examLeaderboard.rank(paperId, userId);
+    }
+}
@@ -0,0 +1,118 @@
+package com.exam.controller;
+
+import com.exam.cache.AnswerKeyCache;
+import com.exam.cache.PaperPayloadCache;
+import com.exam.cache.QuestionCache;
+import com.exam.cache.QuestionSearchIndex;
+import com.exam.config.DataSourceRouting;
+import com.exam.service.AnswerAutosaveBuffer;
+import com.exam.service.AnswerStorage;
+import com.exam.service.CacheSyncPoller;
+import com.exam.service.ExamGradingPipeline;
+import com.exam.service.ExamLeaderboard;
+import com.exam.service.ExamStatistics;
+import com.exam.service.PasswordHashPool;
+import com.exam.util.JwtUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/monitor")
+@RequiredArgsConstructor
+@CrossOrigin
+public class MonitorController {
+    
+    private final QuestionCache questionCache;
+    private final AnswerKeyCache answerKeyCache;
+    private final ExamGradingPipeline gradingPipeline;
+    private final QuestionSearchIndex questionSearchIndex;
+    private final AnswerAutosaveBuffer autosaveBuffer;
+    private final PaperPayloadCache paperPayloadCache;
+    private final JwtUtil jwtUtil;
+    private final PasswordHashPool passwordHashPool;
+    private final AnswerStorage answerStorage;
+    private final ExamStatistics examStatistics;
+    private final ExamLeaderboard examLeaderboard;
+    private final DataSourceRouting dataSourceRouting;
+    private final CacheSyncPoller cacheSyncPoller;
+    
+    // 题库缓存命中情况
+    @GetMapping("/question-cache")
+    public Map<String, Object> getQuestionCacheStats() {
+        return questionCache.stats();
+    }
+    
+    // 试卷答案编译缓存
+    @GetMapping("/answer-keys")
+    public Map<String, Object> getAnswerKeyStats() {
+        return answerKeyCache.stats();
+    }
+    
+    // 异步评分队列深度与延迟
+    @GetMapping("/grading")
+    public Map<String, Object> getGradingStats() {
+        return gradingPipeline.stats();
+    }
+    
+    // 题目搜索索引规模
+    @GetMapping("/search-index")
+    public Map<String, Object> getSearchIndexStats() {
+        return questionSearchIndex.stats();
+    }
+    
+    // 作答自动保存缓冲
+    @GetMapping("/autosave")
+    public Map<String, Object> getAutosaveStats() {
+        return autosaveBuffer.stats();
+    }
+    
+    // 试卷预序列化响应体
+    @GetMapping("/paper-payloads")
+    public Map<String, Object> getPaperPayloadStats() {
+        return paperPayloadCache.stats();
+    }
+    
+    // 已验证token缓存
+    @GetMapping("/jwt-cache")
+    public Map<String, Object> getJwtCacheStats() {
+        return jwtUtil.stats();
+    }
+    
+    // 登录密码哈希线程池排队与耗时
+    @GetMapping("/login-pool")
+    public Map<String, Object> getLoginPoolStats() {
+        return passwordHashPool.stats();
+    }
+    
+    // 作答二进制编码与JSON回退
+    @GetMapping("/answers")
+    public Map<String, Object> getAnswerStorageStats() {
+        return answerStorage.stats();
+    }
+    
+    // 考试统计待落库增量与重建情况
+    @GetMapping("/statistics")
+    public Map<String, Object> getStatisticsStats() {
+        return examStatistics.stats();
+    }
+    
+    // 已加载的排行榜
+    @GetMapping("/leaderboard")
+    public Map<String, Object> getLeaderboardStats() {
+        return examLeaderboard.stats();
+    }
+    
+    // 读写分离：从库状态与读路由分布
+    @GetMapping("/datasource")
+    public Map<String, Object> getDataSourceStats() {
+        return dataSourceRouting.stats();
+    }
+    
+    // 多节点缓存同步：变更日志读取进度与延迟
+    @GetMapping("/cache-sync")
+    public Map<String, Object> getCacheSyncStats() {
+        return cacheSyncPoller.stats();
+    }
+}
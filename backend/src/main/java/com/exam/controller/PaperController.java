@@ -1,14 +1,22 @@
 package com.exam.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.exam.cache.PaperPayloadCache;
 import com.exam.entity.Paper;
-import com.exam.entity.Question;
 import com.exam.service.PaperService;
+import com.exam.util.AuthUtil;
+import com.exam.util.KeysetPage;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
-import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @RestController
@@ -17,13 +25,30 @@ import java.util.Map;
 @CrossOrigin
 public class PaperController {
     
+    private static final byte[] EMPTY_LIST = "[]".getBytes(StandardCharsets.UTF_8);
+    
     private final PaperService paperService;
+    private final PaperPayloadCache paperPayloadCache;
     
     @GetMapping
     public Map<String, Object> getPapers(
             @RequestParam(defaultValue = "1") Integer page,
             @RequestParam(defaultValue = "10") Integer limit,
-            @RequestParam(required = false) String title) {
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        if (after != null) {
+            // 游标分页：不执行OFFSET，total 仅在 withTotal=true 时返回
+            KeysetPage<Paper> keysetPage = paperService.getPaperKeysetPage(after, limit, title, withTotal);
+            Map<String, Object> result = new HashMap<>();
+            result.put("list", keysetPage.getRecords());
+            result.put("nextCursor", keysetPage.getNextCursor());
+            if (keysetPage.getTotal() != null) {
+                result.put("total", keysetPage.getTotal());
+            }
+            return result;
+        }
+        
         Page<Paper> pageResult = paperService.getPaperPage(page, limit, title);
         Map<String, Object> result = new HashMap<>();
         result.put("list", pageResult.getRecords());
@@ -31,18 +56,96 @@ public class PaperController {
         return result;
     }
     
+    // 试卷详情与题目列表返回预序列化的响应体，支持 If-None-Match 协商缓存
     @GetMapping("/{id}")
-    public Paper getPaper(@PathVariable Long id) {
-        return paperService.getById(id);
+    public ResponseEntity<byte[]> getPaper(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        PaperPayloadCache.Payload payload = paperPayloadCache.paper(id, () -> paperService.getById(id));
+        if (payload == null) {
+            return ResponseEntity.ok().build();
+        }
+        return payloadResponse(payload, ifNoneMatch, acceptEncoding);
     }
     
     @GetMapping("/{id}/questions")
-    public List<Question> getPaperQuestions(@PathVariable Long id) {
-        return paperService.getPaperQuestions(id);
+    public ResponseEntity<byte[]> getPaperQuestions(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        PaperPayloadCache.Payload payload = paperPayloadCache.questions(id, () -> paperService.getPaperQuestions(id));
+        if (payload == null) {
+            // 试卷不存在，返回空列表且不缓存
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(EMPTY_LIST);
+        }
+        return payloadResponse(payload, ifNoneMatch, acceptEncoding);
+    }
+    
+    private ResponseEntity<byte[]> payloadResponse(PaperPayloadCache.Payload payload, String ifNoneMatch,
+                                                   String acceptEncoding) {
+        boolean gzipped = payload.getGzip() != null && acceptsGzip(acceptEncoding);
+        // no-cache：浏览器每次携带ETag重新验证，试卷修改后立即可见；200 与 304 都带 Vary，共享缓存按编码区分
+        ResponseEntity.BodyBuilder builder = ResponseEntity
+                .status(payload.matches(ifNoneMatch) ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+                .eTag(payload.etag(gzipped))
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (payload.matches(ifNoneMatch)) {
+            return builder.build();
+        }
+        builder.contentType(MediaType.APPLICATION_JSON);
+        if (gzipped) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(payload.getGzip());
+        }
+        return builder.body(payload.getJson());
+    }
+    
+    // 按 Accept-Encoding 的编码名和q值判断能否返回gzip：gzip（或等价的x-gzip）显式列出时以其q值为准，
+    // 否则看 * 的q值；q=0 表示不接受
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1.0;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.length() > 2 && (param.charAt(0) == 'q' || param.charAt(0) == 'Q') && param.charAt(1) == '=') {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = gzip == null ? q : Math.max(gzip, q);
+            } else if (coding.equals("*")) {
+                any = q;
+            }
+        }
+        if (gzip != null) {
+            return gzip > 0;
+        }
+        return any != null && any > 0;
+    }
+    
+    // 使用某道题目的试卷ID列表
+    @GetMapping("/by-question/{questionId}")
+    public Map<String, Object> getPapersByQuestion(@PathVariable Long questionId) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("list", paperService.getPaperIdsByQuestion(questionId));
+        return result;
     }
     
     @PostMapping
     public Map<String, Object> addPaper(@RequestBody Paper paper) {
+        paper.setCreateBy(AuthUtil.currentUserId());
         paperService.addPaper(paper);
         Map<String, Object> result = new HashMap<>();
         result.put("message", "添加成功");
@@ -60,7 +163,7 @@ public class PaperController {
     
     @DeleteMapping("/{id}")
     public Map<String, Object> deletePaper(@PathVariable Long id) {
-        paperService.removeById(id);
+        paperService.deletePaper(id);
         Map<String, Object> result = new HashMap<>();
         result.put("message", "删除成功");
         return result;
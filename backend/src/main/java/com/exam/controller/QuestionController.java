@@ -1,11 +1,18 @@
 package com.exam.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.exam.dto.QuestionSummary;
 import com.exam.entity.Question;
+import com.exam.service.QuestionImporter;
 import com.exam.service.QuestionService;
+import com.exam.util.AuthUtil;
+import com.exam.util.KeysetPage;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,16 +24,34 @@ import java.util.Map;
 public class QuestionController {
     
     private final QuestionService questionService;
+    private final QuestionImporter questionImporter;
     
     @GetMapping
     public Map<String, Object> getQuestions(
             @RequestParam(defaultValue = "1") Integer page,
             @RequestParam(defaultValue = "10") Integer limit,
             @RequestParam(required = false) Integer type,
-            @RequestParam(required = false) String keyword) {
-        Page<Question> pageResult = questionService.getQuestionPage(page, limit, type, keyword);
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            @RequestParam(defaultValue = "summary") String fields) {
+        // 默认返回摘要列，fields=detail 时返回整行
+        boolean detail = "detail".equals(fields);
+        if (after != null) {
+            // 游标分页：不执行OFFSET，total 仅在 withTotal=true 时返回
+            KeysetPage<Question> keysetPage = questionService.getQuestionKeysetPage(after, limit, type, keyword, withTotal, detail);
+            Map<String, Object> result = new HashMap<>();
+            result.put("list", detail ? keysetPage.getRecords() : QuestionSummary.from(keysetPage.getRecords()));
+            result.put("nextCursor", keysetPage.getNextCursor());
+            if (keysetPage.getTotal() != null) {
+                result.put("total", keysetPage.getTotal());
+            }
+            return result;
+        }
+        
+        Page<Question> pageResult = questionService.getQuestionPage(page, limit, type, keyword, detail);
         Map<String, Object> result = new HashMap<>();
-        result.put("list", pageResult.getRecords());
+        result.put("list", detail ? pageResult.getRecords() : QuestionSummary.from(pageResult.getRecords()));
         result.put("total", pageResult.getTotal());
         return result;
     }
@@ -34,8 +59,9 @@ public class QuestionController {
     @GetMapping("/random")
     public Map<String, Object> getRandomQuestions(
             @RequestParam Integer type,
-            @RequestParam(defaultValue = "10") Integer count) {
-        List<Question> questions = questionService.getRandomQuestions(type, count);
+            @RequestParam(defaultValue = "10") Integer count,
+            @RequestParam(required = false) Long seed) {
+        List<Question> questions = questionService.getRandomQuestions(type, count, seed);
         Map<String, Object> result = new HashMap<>();
         result.put("list", questions);
         return result;
@@ -68,8 +94,9 @@ public class QuestionController {
     @GetMapping("/exam")
     public Map<String, Object> getExamQuestions(
             @RequestParam(required = false) String module,
-            @RequestParam(defaultValue = "100") Integer count) {
-        List<Question> questions = questionService.getRandomQuestionsByModule(module, count);
+            @RequestParam(defaultValue = "100") Integer count,
+            @RequestParam(required = false) Long seed) {
+        List<Question> questions = questionService.getRandomQuestionsByModule(module, count, seed);
         Map<String, Object> result = new HashMap<>();
         result.put("list", questions);
         result.put("total", questions.size());
@@ -84,16 +111,36 @@ public class QuestionController {
     
     @PostMapping
     public Map<String, Object> addQuestion(@RequestBody Question question) {
-        questionService.save(question);
+        question.setCreateBy(AuthUtil.currentUserId());
+        questionService.addQuestion(question);
         Map<String, Object> result = new HashMap<>();
         result.put("message", "添加成功");
         return result;
     }
     
+    // 批量导入：CSV（表头含 content,type,optionA..optionD,answer,score,analysis）或 JSON Lines
+    @PostMapping("/import")
+    public Map<String, Object> importQuestions(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) Integer batchSize) throws IOException {
+        Long createBy = AuthUtil.currentUserId();
+        String name = file.getOriginalFilename() == null ? "" : file.getOriginalFilename().toLowerCase();
+        if (format == null) {
+            format = name.endsWith(".csv") ? "csv" : "jsonl";
+        }
+        try (InputStream input = file.getInputStream()) {
+            if ("csv".equalsIgnoreCase(format)) {
+                return questionImporter.importCsv(input, batchSize, createBy);
+            }
+            return questionImporter.importJsonLines(input, batchSize, createBy);
+        }
+    }
+    
     @PutMapping("/{id}")
     public Map<String, Object> updateQuestion(@PathVariable Long id, @RequestBody Question question) {
         question.setId(id);
-        questionService.updateById(question);
+        questionService.updateQuestion(question);
         Map<String, Object> result = new HashMap<>();
         result.put("message", "更新成功");
         return result;
@@ -101,7 +148,7 @@ public class QuestionController {
     
     @DeleteMapping("/{id}")
     public Map<String, Object> deleteQuestion(@PathVariable Long id) {
-        questionService.removeById(id);
+        questionService.deleteQuestion(id);
         Map<String, Object> result = new HashMap<>();
         result.put("message", "删除成功");
         return result;
@@ -0,0 +1,43 @@
+package com.exam.controller;
+
+import com.exam.service.ExamStatistics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/stats")
+@RequiredArgsConstructor
+@CrossOrigin
+public class StatisticsController {
+    
+    private final ExamStatistics examStatistics;
+    
+    // 试卷交卷数、平均分、及格率和得分分布
+    @GetMapping("/papers/{paperId}")
+    public Map<String, Object> getPaperStats(@PathVariable Long paperId) {
+        return examStatistics.paperSummary(paperId);
+    }
+    
+    // 试卷中每道题的正确率和选项分布
+    @GetMapping("/papers/{paperId}/questions")
+    public List<Map<String, Object>> getPaperQuestionStats(@PathVariable Long paperId) {
+        return examStatistics.paperQuestions(paperId);
+    }
+    
+    @GetMapping("/questions/{questionId}")
+    public Map<String, Object> getQuestionStats(@PathVariable Long questionId) {
+        return examStatistics.question(questionId);
+    }
+    
+    // 从历史考试记录重算统计，后台执行
+    @PostMapping("/rebuild")
+    public Map<String, Object> rebuild() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("message", examStatistics.rebuildAsync() ? "统计重建已开始" : "统计正在重建中");
+        return result;
+    }
+}
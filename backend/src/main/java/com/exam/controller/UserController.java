@@ -1,8 +1,10 @@
 package com.exam.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.exam.dto.UserSummary;
 import com.exam.entity.User;
 import com.exam.service.UserService;
+import com.exam.util.KeysetPage;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
@@ -22,10 +24,24 @@ public class UserController {
             @RequestParam(defaultValue = "1") Integer page,
             @RequestParam(defaultValue = "10") Integer limit,
             @RequestParam(required = false) String username,
-            @RequestParam(required = false) Integer role) {
+            @RequestParam(required = false) Integer role,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        if (after != null) {
+            // 游标分页：不执行OFFSET，total 仅在 withTotal=true 时返回
+            KeysetPage<User> keysetPage = userService.getUserKeysetPage(after, limit, username, role, withTotal);
+            Map<String, Object> result = new HashMap<>();
+            result.put("list", UserSummary.from(keysetPage.getRecords()));
+            result.put("nextCursor", keysetPage.getNextCursor());
+            if (keysetPage.getTotal() != null) {
+                result.put("total", keysetPage.getTotal());
+            }
+            return result;
+        }
+        
         Page<User> pageResult = userService.getUserPage(page, limit, username, role);
         Map<String, Object> result = new HashMap<>();
-        result.put("list", pageResult.getRecords());
+        result.put("list", UserSummary.from(pageResult.getRecords()));
         result.put("total", pageResult.getTotal());
         return result;
     }
@@ -0,0 +1,45 @@
+package com.exam.dto;
+
+import com.exam.entity.ExamRecord;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 考试记录列表项：不含作答
+ */
+@Data
+public class ExamRecordSummary {
+    
+    private Long id;
+    private Long userId;
+    private Long paperId;
+    private Integer score;
+    private Integer status;
+    private LocalDateTime startTime;
+    private LocalDateTime submitTime;
+    private LocalDateTime createTime;
+    
+    public static ExamRecordSummary from(ExamRecord record) {
+        ExamRecordSummary summary = new ExamRecordSummary();
+        summary.setId(record.getId());
+        summary.setUserId(record.getUserId());
+        summary.setPaperId(record.getPaperId());
+        summary.setScore(record.getScore());
+        summary.setStatus(record.getStatus());
+        summary.setStartTime(record.getStartTime());
+        summary.setSubmitTime(record.getSubmitTime());
+        summary.setCreateTime(record.getCreateTime());
+        return summary;
+    }
+    
+    public static List<ExamRecordSummary> from(List<ExamRecord> records) {
+        List<ExamRecordSummary> result = new ArrayList<>(records.size());
+        for (ExamRecord record : records) {
+            result.add(from(record));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,49 @@
+package com.exam.dto;
+
+import com.exam.entity.Question;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 题目列表项：题干只保留前 CONTENT_PREVIEW 个字符，不含选项和解析
+ */
+@Data
+public class QuestionSummary {
+    
+    public static final int CONTENT_PREVIEW = 100;
+    
+    private Long id;
+    private String content;
+    private Integer type;
+    private String answer;
+    private Integer score;
+    private Long createBy;
+    private LocalDateTime createTime;
+    private LocalDateTime updateTime;
+    
+    public static QuestionSummary from(Question question) {
+        QuestionSummary summary = new QuestionSummary();
+        summary.setId(question.getId());
+        String content = question.getContent();
+        summary.setContent(content != null && content.length() > CONTENT_PREVIEW
+                ? content.substring(0, CONTENT_PREVIEW) : content);
+        summary.setType(question.getType());
+        summary.setAnswer(question.getAnswer());
+        summary.setScore(question.getScore());
+        summary.setCreateBy(question.getCreateBy());
+        summary.setCreateTime(question.getCreateTime());
+        summary.setUpdateTime(question.getUpdateTime());
+        return summary;
+    }
+    
+    public static List<QuestionSummary> from(List<Question> questions) {
+        List<QuestionSummary> result = new ArrayList<>(questions.size());
+        for (Question question : questions) {
+            result.add(from(question));
+        }
+        return result;
+    }
+}
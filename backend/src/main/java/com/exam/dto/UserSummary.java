@@ -0,0 +1,43 @@
+package com.exam.dto;
+
+import com.exam.entity.User;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 用户列表项：不含密码哈希
+ */
+@Data
+public class UserSummary {
+    
+    private Long id;
+    private String username;
+    private String realName;
+    private Integer role;
+    private Integer status;
+    private LocalDateTime createTime;
+    private LocalDateTime updateTime;
+    
+    public static UserSummary from(User user) {
+        UserSummary summary = new UserSummary();
+        summary.setId(user.getId());
+        summary.setUsername(user.getUsername());
+        summary.setRealName(user.getRealName());
+        summary.setRole(user.getRole());
+        summary.setStatus(user.getStatus());
+        summary.setCreateTime(user.getCreateTime());
+        summary.setUpdateTime(user.getUpdateTime());
+        return summary;
+    }
+    
+    public static List<UserSummary> from(List<User> users) {
+        List<UserSummary> result = new ArrayList<>(users.size());
+        for (User user : users) {
+            result.add(from(user));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,23 @@
+package com.exam.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@TableName("t_cache_change")
+public class CacheChange {
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    
+    private String entityType; // question/paper/question-all
+    private Long entityId;
+    private LocalDateTime createTime;
+    
+    @TableField(exist = false)
+    private LocalDateTime pollTime; // 轮询时的数据库时间，用于计算同步延迟
+}
@@ -1,6 +1,7 @@
 package com.exam.entity;
 
 import com.baomidou.mybatisplus.annotation.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
 import java.time.LocalDateTime;
@@ -13,11 +14,17 @@ public class ExamRecord {
     
     private Long userId;
     private Long paperId;
-    private String answers; // 用户答案，JSON格式
+    private String answers; // 用户答案，JSON格式；已编码为 answerCodes 时为空，接口返回时填充
+    @JsonIgnore
+    private byte[] answerCodes; // 交卷后的作答，按试卷题目布局每题3位编码
     private Integer score; // 得分
-    private Integer status; // 1-已完成 0-进行中
+    private Integer status; // 1-已完成 0-进行中 2-评分中
     private LocalDateTime startTime;
     private LocalDateTime submitTime;
+    @JsonIgnore
+    private String submitKey; // 交卷时客户端提供的幂等键
+    @JsonIgnore
+    private LocalDateTime gradeTime; // 评分完成时间，由数据库写入
     
     @TableField(fill = FieldFill.INSERT)
     private LocalDateTime createTime;
@@ -12,7 +12,8 @@ public class Paper {
     private Long id;
     
     private String title; // 试卷标题
-    private String questionIds; // 题目ID列表，逗号分隔
+    @TableField(exist = false)
+    private String questionIds; // 题目ID列表，逗号分隔，存储于 t_paper_question
     private Integer totalScore; // 总分
     private Integer duration; // 考试时长（分钟）
     private Long createBy;
@@ -0,0 +1,13 @@
+package com.exam.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+@Data
+@TableName("t_paper_question")
+public class PaperQuestion {
+    private Long paperId;
+    private Long questionId;
+    private Integer seq; // 题目在试卷中的顺序，从0开始
+    private Integer scoreOverride; // 本卷中的分值，为空时使用题目分值
+}
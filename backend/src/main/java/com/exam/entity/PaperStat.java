@@ -0,0 +1,28 @@
+package com.exam.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+@Data
+@TableName("t_paper_stat")
+public class PaperStat {
+    @TableId(type = IdType.INPUT)
+    private Long paperId;
+    
+    private Long submissions; // 已评分的交卷数
+    private Long scoreSum; // 总得分
+    private Long passed; // 及格人数
+    // 得分占试卷总分比例的分布：bucket0 为 [0%,10%)，bucket9 为 [90%,100%]
+    private Long bucket0;
+    private Long bucket1;
+    private Long bucket2;
+    private Long bucket3;
+    private Long bucket4;
+    private Long bucket5;
+    private Long bucket6;
+    private Long bucket7;
+    private Long bucket8;
+    private Long bucket9;
+}
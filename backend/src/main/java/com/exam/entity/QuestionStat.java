@@ -0,0 +1,23 @@
+package com.exam.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+@Data
+@TableName("t_question_stat")
+public class QuestionStat {
+    @TableId(type = IdType.INPUT)
+    private Long questionId;
+    
+    private Long attempts; // 作答次数
+    private Long correct; // 答对次数
+    // 各选项被选次数
+    private Long pickA;
+    private Long pickB;
+    private Long pickC;
+    private Long pickD;
+    private Long pickT;
+    private Long pickF;
+}
@@ -0,0 +1,26 @@
+package com.exam.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.exam.entity.CacheChange;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface CacheChangeMapper extends BaseMapper<CacheChange> {
+    
+    // 按主键范围读取新增的变更，附带数据库当前时间
+    @Select("SELECT id, entity_type, entity_id, create_time, CURRENT_TIMESTAMP(3) AS poll_time FROM t_cache_change "
+            + "WHERE id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<CacheChange> selectAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+    
+    @Select("SELECT MAX(id) FROM t_cache_change")
+    Long selectMaxId();
+    
+    @Delete("DELETE FROM t_cache_change WHERE create_time < #{before}")
+    int deleteBefore(@Param("before") LocalDateTime before);
+}
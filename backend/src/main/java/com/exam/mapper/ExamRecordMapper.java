@@ -3,7 +3,32 @@ package com.exam.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.exam.entity.ExamRecord;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
 
 @Mapper
 public interface ExamRecordMapper extends BaseMapper<ExamRecord> {
+    
+    // 异步评分完成后写回分数，仅更新仍处于评分中的记录
+    @Update("UPDATE t_exam_record SET score = #{score}, status = 1, grade_time = CURRENT_TIMESTAMP(3) WHERE id = #{id} AND status = 2")
+    int updateGradedScore(@Param("id") Long id, @Param("score") Integer score);
+    
+    // 最近一次评分完成时间（数据库时钟），排行榜增量同步的上界
+    @Select("SELECT MAX(grade_time) FROM t_exam_record")
+    LocalDateTime selectMaxGradeTime();
+    
+    // 自动保存写回作答，仅更新进行中的记录，交卷后的迟到写入不生效
+    @Update("UPDATE t_exam_record SET answers = #{answers} WHERE id = #{id} AND status = 0")
+    int updateInProgressAnswers(@Param("id") Long id, @Param("answers") String answers);
+    
+    // 旧JSON作答转为二进制编码
+    @Update("UPDATE t_exam_record SET answer_codes = #{codes}, answers = NULL WHERE id = #{id} AND answer_codes IS NULL")
+    int compactAnswers(@Param("id") Long id, @Param("codes") byte[] codes);
+    
+    // 二进制作答展开为JSON（试卷题目布局变更前）
+    @Update("UPDATE t_exam_record SET answers = #{answers}, answer_codes = NULL WHERE id = #{id}")
+    int expandAnswers(@Param("id") Long id, @Param("answers") String answers);
 }
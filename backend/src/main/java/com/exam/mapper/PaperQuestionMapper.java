@@ -0,0 +1,48 @@
+package com.exam.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.exam.entity.PaperQuestion;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+@Mapper
+public interface PaperQuestionMapper extends BaseMapper<PaperQuestion> {
+    
+    // 按顺序加载试卷题目，走主键(paper_id, seq)
+    @Select("SELECT paper_id, question_id, seq, score_override FROM t_paper_question "
+            + "WHERE paper_id = #{paperId} ORDER BY seq")
+    List<PaperQuestion> selectByPaperId(@Param("paperId") Long paperId);
+    
+    @Select("<script>SELECT paper_id, question_id, seq, score_override FROM t_paper_question "
+            + "WHERE paper_id IN <foreach collection='paperIds' item='id' open='(' separator=',' close=')'>#{id}</foreach> "
+            + "ORDER BY paper_id, seq</script>")
+    List<PaperQuestion> selectByPaperIds(@Param("paperIds") Collection<Long> paperIds);
+    
+    // 反查使用某道题的试卷，走 idx_question
+    @Select("SELECT DISTINCT pq.paper_id FROM t_paper_question pq "
+            + "JOIN t_paper p ON p.id = pq.paper_id AND p.deleted = 0 "
+            + "WHERE pq.question_id = #{questionId}")
+    List<Long> selectPaperIdsByQuestionId(@Param("questionId") Long questionId);
+    
+    @Insert("<script>INSERT INTO t_paper_question (paper_id, question_id, seq, score_override) VALUES "
+            + "<foreach collection='list' item='item' separator=','>"
+            + "(#{item.paperId}, #{item.questionId}, #{item.seq}, #{item.scoreOverride})"
+            + "</foreach></script>")
+    int insertBatch(@Param("list") List<PaperQuestion> list);
+    
+    @Delete("DELETE FROM t_paper_question WHERE paper_id = #{paperId}")
+    int deleteByPaperId(@Param("paperId") Long paperId);
+    
+    // 迁移用：读取尚未拆分到关联表的旧 question_ids 列
+    @Select("SELECT p.id AS paperId, p.question_ids AS questionIds FROM t_paper p "
+            + "WHERE p.question_ids IS NOT NULL AND p.question_ids <> '' "
+            + "AND NOT EXISTS (SELECT 1 FROM t_paper_question pq WHERE pq.paper_id = p.id)")
+    List<Map<String, Object>> selectUnmigratedPapers();
+}
@@ -0,0 +1,28 @@
+package com.exam.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.exam.entity.PaperStat;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+
+@Mapper
+public interface PaperStatMapper extends BaseMapper<PaperStat> {
+    
+    // 累加增量，行不存在时插入
+    @Insert("INSERT INTO t_paper_stat (paper_id, submissions, score_sum, passed, bucket0, bucket1, bucket2, bucket3, "
+            + "bucket4, bucket5, bucket6, bucket7, bucket8, bucket9) "
+            + "VALUES (#{paperId}, #{submissions}, #{scoreSum}, #{passed}, #{bucket0}, #{bucket1}, #{bucket2}, #{bucket3}, "
+            + "#{bucket4}, #{bucket5}, #{bucket6}, #{bucket7}, #{bucket8}, #{bucket9}) "
+            + "ON DUPLICATE KEY UPDATE submissions = submissions + VALUES(submissions), "
+            + "score_sum = score_sum + VALUES(score_sum), passed = passed + VALUES(passed), "
+            + "bucket0 = bucket0 + VALUES(bucket0), bucket1 = bucket1 + VALUES(bucket1), "
+            + "bucket2 = bucket2 + VALUES(bucket2), bucket3 = bucket3 + VALUES(bucket3), "
+            + "bucket4 = bucket4 + VALUES(bucket4), bucket5 = bucket5 + VALUES(bucket5), "
+            + "bucket6 = bucket6 + VALUES(bucket6), bucket7 = bucket7 + VALUES(bucket7), "
+            + "bucket8 = bucket8 + VALUES(bucket8), bucket9 = bucket9 + VALUES(bucket9)")
+    int addDelta(PaperStat delta);
+    
+    @Delete("DELETE FROM t_paper_stat")
+    int deleteAll();
+}
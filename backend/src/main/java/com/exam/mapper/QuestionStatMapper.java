@@ -0,0 +1,22 @@
+package com.exam.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.exam.entity.QuestionStat;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+
+@Mapper
+public interface QuestionStatMapper extends BaseMapper<QuestionStat> {
+    
+    // 累加增量，行不存在时插入
+    @Insert("INSERT INTO t_question_stat (question_id, attempts, correct, pick_a, pick_b, pick_c, pick_d, pick_t, pick_f) "
+            + "VALUES (#{questionId}, #{attempts}, #{correct}, #{pickA}, #{pickB}, #{pickC}, #{pickD}, #{pickT}, #{pickF}) "
+            + "ON DUPLICATE KEY UPDATE attempts = attempts + VALUES(attempts), correct = correct + VALUES(correct), "
+            + "pick_a = pick_a + VALUES(pick_a), pick_b = pick_b + VALUES(pick_b), pick_c = pick_c + VALUES(pick_c), "
+            + "pick_d = pick_d + VALUES(pick_d), pick_t = pick_t + VALUES(pick_t), pick_f = pick_f + VALUES(pick_f)")
+    int addDelta(QuestionStat delta);
+    
+    @Delete("DELETE FROM t_question_stat")
+    int deleteAll();
+}
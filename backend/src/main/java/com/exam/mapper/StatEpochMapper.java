@@ -0,0 +1,33 @@
+package com.exam.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+
+// 统计重建纪元（t_stat_epoch 只有 id = 1 一行），各节点落库统计增量前据此判断是否已被重建覆盖
+@Mapper
+public interface StatEpochMapper {
+    
+    // 行不存在（未执行迁移）时返回null
+    @Select("SELECT epoch FROM t_stat_epoch WHERE id = 1")
+    Long selectEpoch();
+    
+    // 落库增量与重建写表互斥
+    @Select("SELECT epoch FROM t_stat_epoch WHERE id = 1 FOR UPDATE")
+    Long lockEpoch();
+    
+    // 占用重建，其他节点正在重建且未超过租期时不生效
+    @Update("UPDATE t_stat_epoch SET rebuilding = 1, rebuild_time = #{now} "
+            + "WHERE id = 1 AND (rebuilding = 0 OR rebuild_time < #{expiredBefore})")
+    int claimRebuild(@Param("now") LocalDateTime now, @Param("expiredBefore") LocalDateTime expiredBefore);
+    
+    // 重建写表后推进纪元，与写表同一事务
+    @Update("UPDATE t_stat_epoch SET epoch = epoch + 1, rebuilding = 0 WHERE id = 1")
+    int finishRebuild();
+    
+    @Update("UPDATE t_stat_epoch SET rebuilding = 0 WHERE id = 1")
+    int releaseRebuild();
+}
@@ -0,0 +1,316 @@
+package com.exam.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.exam.entity.ExamRecord;
+import com.exam.mapper.ExamRecordMapper;
+import com.exam.util.ThreadFactories;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 作答自动保存缓冲
+ * 按考试记录ID分段加锁，在内存中合并每道题的作答增量；定时或脏记录数达到阈值时，
+ * 把所有脏记录的完整答案用一次JDBC批量更新写回（仅限进行中的记录）。交卷时先合并未落库的作答，
+ * 交卷语句执行后才移除缓冲，评分或写库失败时未落库的作答仍保留在缓冲中。
+ * 缓冲只在本节点内存中，多节点部署时同一考试记录的请求须路由到同一节点（nginx.conf 按记录ID一致性哈希）；
+ * 交卷时本节点没有缓冲则以已落库的作答为基础合并，其他节点已写回的自动保存不会丢失。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AnswerAutosaveBuffer {
+
+    private static final int STRIPES = 64;
+    private static final TypeReference<LinkedHashMap<String, String>> ANSWERS_TYPE = new TypeReference<>() {};
+
+    private final ExamRecordMapper examRecordMapper;
+    private final SqlSessionFactory sqlSessionFactory;
+    private final ObjectMapper objectMapper;
+
+    @Value("${exam.autosave.flush-interval-ms:3000}")
+    private long flushIntervalMillis;
+
+    @Value("${exam.autosave.flush-threshold:500}")
+    private int flushThreshold;
+
+    @Value("${exam.autosave.idle-evict-ms:600000}")
+    private long idleEvictMillis;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicInteger dirtyRecords = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private ScheduledExecutorService flusher;
+
+    private final LongAdder saves = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder rowsFlushed = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(
+                r -> ThreadFactories.newThread("exam-autosave-flusher", r, virtualThreads));
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.shutdown();
+        flushQuietly();
+    }
+
+    // 合并作答增量，答案为空表示清除该题作答；ownerId 非空时校验记录归属；返回该记录当前已作答题数
+    public int save(Long recordId, Map<String, String> deltas, Long ownerId) {
+        Stripe stripe = stripeOf(recordId);
+        boolean cached;
+        synchronized (stripe) {
+            cached = stripe.entries.containsKey(recordId);
+        }
+        // 首次保存时在锁外加载已落库的作答
+        Entry loaded = cached ? null : load(recordId);
+
+        int answered;
+        boolean becameDirty;
+        synchronized (stripe) {
+            Entry entry = stripe.entries.get(recordId);
+            if (entry == null) {
+                if (loaded == null) {
+                    // 期间被交卷取走或被淘汰，重新加载
+                    loaded = load(recordId);
+                }
+                entry = loaded;
+                stripe.entries.put(recordId, entry);
+            }
+            if (ownerId != null && !ownerId.equals(entry.userId)) {
+                throw new RuntimeException("无权访问该考试记录");
+            }
+            for (Map.Entry<String, String> delta : deltas.entrySet()) {
+                if (delta.getValue() == null || delta.getValue().isEmpty()) {
+                    entry.answers.remove(delta.getKey());
+                } else {
+                    entry.answers.put(delta.getKey(), delta.getValue());
+                }
+            }
+            entry.lastTouched = System.currentTimeMillis();
+            becameDirty = !entry.dirty;
+            entry.dirty = true;
+            answered = entry.answers.size();
+        }
+        saves.increment();
+        if (becameDirty && dirtyRecords.incrementAndGet() >= flushThreshold
+                && flushScheduled.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+        return answered;
+    }
+
+    // 交卷语句执行后（无论是否抢到）移除缓冲中的作答，记录已不再进行中
+    public void discard(Long recordId) {
+        Stripe stripe = stripeOf(recordId);
+        synchronized (stripe) {
+            Entry entry = stripe.entries.remove(recordId);
+            if (entry != null && entry.dirty) {
+                dirtyRecords.decrementAndGet();
+            }
+        }
+    }
+
+    // 当前缓冲中的作答（JSON），供断线后恢复答题，没有缓冲时返回null
+    public String peek(Long recordId) {
+        Stripe stripe = stripeOf(recordId);
+        synchronized (stripe) {
+            Entry entry = stripe.entries.get(recordId);
+            return entry == null ? null : toJson(entry.answers);
+        }
+    }
+
+    // 合并交卷答案与自动保存的作答，交卷答案优先；persisted 为记录中已落库的作答，本节点没有缓冲时以它为基础。
+    // 只读取缓冲，交卷成功后再 discard
+    public String mergeForSubmit(Long recordId, String submitted, String persisted) {
+        Map<String, String> buffered = null;
+        Stripe stripe = stripeOf(recordId);
+        synchronized (stripe) {
+            Entry entry = stripe.entries.get(recordId);
+            if (entry != null) {
+                buffered = new LinkedHashMap<>(entry.answers);
+            }
+        }
+        if (buffered == null) {
+            if (persisted == null || persisted.isEmpty()) {
+                return submitted;
+            }
+            try {
+                buffered = objectMapper.readValue(persisted, ANSWERS_TYPE);
+            } catch (JsonProcessingException e) {
+                return submitted;
+            }
+        }
+        if (submitted != null && !submitted.isEmpty()) {
+            try {
+                buffered.putAll(objectMapper.readValue(submitted, ANSWERS_TYPE));
+            } catch (JsonProcessingException e) {
+                return submitted;
+            }
+        }
+        return toJson(buffered);
+    }
+
+    public Map<String, Object> stats() {
+        int buffered = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                buffered += stripe.entries.size();
+            }
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("bufferedRecords", buffered);
+        stats.put("dirtyRecords", dirtyRecords.get());
+        stats.put("saves", saves.sum());
+        stats.put("flushes", flushes.sum());
+        stats.put("rowsFlushed", rowsFlushed.sum());
+        return stats;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("自动保存落库失败", e);
+        } finally {
+            flushScheduled.set(false);
+        }
+    }
+
+    private void flush() {
+        long now = System.currentTimeMillis();
+        List<Long> ids = new ArrayList<>();
+        List<String> payloads = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                Iterator<Map.Entry<Long, Entry>> it = stripe.entries.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<Long, Entry> item = it.next();
+                    Entry entry = item.getValue();
+                    if (entry.dirty) {
+                        ids.add(item.getKey());
+                        payloads.add(toJson(entry.answers));
+                        entry.dirty = false;
+                        dirtyRecords.decrementAndGet();
+                    } else if (now - entry.lastTouched > idleEvictMillis) {
+                        it.remove();
+                    }
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+            ExamRecordMapper mapper = session.getMapper(ExamRecordMapper.class);
+            for (int i = 0; i < ids.size(); i++) {
+                mapper.updateInProgressAnswers(ids.get(i), payloads.get(i));
+            }
+            session.flushStatements();
+            session.commit();
+        } catch (RuntimeException e) {
+            markDirty(ids);
+            throw e;
+        }
+        flushes.increment();
+        rowsFlushed.add(ids.size());
+    }
+
+    // 写库失败时重新标记为脏，下次再写
+    private void markDirty(List<Long> ids) {
+        for (Long id : ids) {
+            Stripe stripe = stripeOf(id);
+            synchronized (stripe) {
+                Entry entry = stripe.entries.get(id);
+                if (entry != null && !entry.dirty) {
+                    entry.dirty = true;
+                    dirtyRecords.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private Entry load(Long recordId) {
+        LambdaQueryWrapper<ExamRecord> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(ExamRecord::getId, ExamRecord::getUserId, ExamRecord::getStatus, ExamRecord::getAnswers);
+        wrapper.eq(ExamRecord::getId, recordId);
+        ExamRecord record = examRecordMapper.selectOne(wrapper);
+        if (record == null) {
+            throw new RuntimeException("考试记录不存在");
+        }
+        if (record.getStatus() == null || record.getStatus() != 0) {
+            throw new RuntimeException("考试已提交，无法保存作答");
+        }
+        LinkedHashMap<String, String> answers = new LinkedHashMap<>();
+        if (record.getAnswers() != null && !record.getAnswers().isEmpty()) {
+            try {
+                answers = objectMapper.readValue(record.getAnswers(), ANSWERS_TYPE);
+            } catch (JsonProcessingException e) {
+                // 无法解析的旧数据从空白开始
+            }
+        }
+        return new Entry(record.getUserId(), answers);
+    }
+
+    private String toJson(Map<String, String> answers) {
+        try {
+            return objectMapper.writeValueAsString(answers);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Stripe stripeOf(Long recordId) {
+        return stripes[(int) (recordId ^ (recordId >>> 32)) & (STRIPES - 1)];
+    }
+
+    private static final class Stripe {
+        private final Map<Long, Entry> entries = new HashMap<>();
+    }
+
+    private static final class Entry {
+        private final Long userId;
+        private final LinkedHashMap<String, String> answers;
+        private boolean dirty;
+        private long lastTouched = System.currentTimeMillis();
+
+        private Entry(Long userId, LinkedHashMap<String, String> answers) {
+            this.userId = userId;
+            this.answers = answers;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.exam.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.exam.cache.AnswerKey;
+import com.exam.cache.AnswerKeyCache;
+import com.exam.cache.AnswerLayout;
+import com.exam.entity.ExamRecord;
+import com.exam.mapper.ExamRecordMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 考试记录作答的存储格式
+ * 交卷后的作答按试卷题目布局编码到 answer_codes（每题3位），answers 置空；无法编码的作答
+ * （多选、不在试卷中的题目等）和旧数据仍以JSON保存在 answers。接口、导出统一返回JSON视图。
+ * 试卷布局变更时按主键分批把该试卷的二进制作答展开为JSON，每批独立事务，不在一个事务中持有全部记录。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AnswerStorage {
+
+    // 与 answer_codes 列宽一致
+    private static final int MAX_CODES_BYTES = 1024;
+
+    private final AnswerKeyCache answerKeyCache;
+    private final ExamRecordMapper examRecordMapper;
+    private final SqlSessionFactory sqlSessionFactory;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${exam.answers.binary:true}")
+    private boolean binary;
+
+    @Value("${exam.answers.expand-chunk:1000}")
+    private int expandChunk;
+
+    private TransactionTemplate chunkTransaction;
+
+    private final LongAdder encoded = new LongAdder();
+    private final LongAdder jsonFallbacks = new LongAdder();
+    private final LongAdder decoded = new LongAdder();
+    private final LongAdder undecodable = new LongAdder();
+    private final LongAdder expanded = new LongAdder();
+    private final LongAdder compacted = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        // 提交回调中调用时原事务已无法再提交，每批都开启独立事务
+        chunkTransaction = new TransactionTemplate(transactionManager);
+        chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // 设置交卷作答（record 需含 paperId）：能编码时写 answerCodes，否则写 answers
+    public void store(ExamRecord record, String answersJson) {
+        byte[] codes = binary ? encode(record.getPaperId(), answersJson) : null;
+        if (codes != null) {
+            record.setAnswerCodes(codes);
+            record.setAnswers(null);
+            encoded.increment();
+        } else {
+            record.setAnswerCodes(null);
+            record.setAnswers(answersJson);
+            jsonFallbacks.increment();
+        }
+    }
+
+    // 作答的JSON视图
+    public String json(ExamRecord record) {
+        if (record.getAnswerCodes() == null) {
+            return record.getAnswers();
+        }
+        AnswerLayout layout = answerKeyCache.layout(record.getPaperId(), record.getAnswerCodes());
+        String json = layout == null ? null : layout.decode(record.getAnswerCodes());
+        if (json == null) {
+            undecodable.increment();
+            log.warn("考试记录 {} 的作答与试卷 {} 的题目布局不一致，无法解码", record.getId(), record.getPaperId());
+            return record.getAnswers();
+        }
+        decoded.increment();
+        return json;
+    }
+
+    // 把二进制作答填充为JSON视图，供接口返回
+    public void fillJson(Collection<ExamRecord> records) {
+        for (ExamRecord record : records) {
+            if (record.getAnswerCodes() != null) {
+                record.setAnswers(json(record));
+            }
+        }
+    }
+
+    public int grade(AnswerKey answerKey, ExamRecord record) {
+        if (record.getAnswerCodes() == null) {
+            return answerKey.grade(record.getAnswers());
+        }
+        if (answerKey.getLayout().matches(record.getAnswerCodes())) {
+            return answerKey.grade(record.getAnswerCodes());
+        }
+        // 按旧布局编码（与布局变更并发），解码后按JSON评分
+        return answerKey.grade(json(record));
+    }
+
+    // 交卷写入成功后调用：编码所用布局若已失效（试卷题目布局在此期间变更），把这条作答展开为JSON。
+    // 此时布局仍有效的，失效后由 relayout 统一展开
+    public void verify(ExamRecord record) {
+        byte[] codes = record.getAnswerCodes();
+        if (codes == null) {
+            return;
+        }
+        AnswerLayout layout = answerKeyCache.layout(record.getPaperId());
+        if (layout != null && layout.matches(codes)) {
+            return;
+        }
+        String json = json(record);
+        if (json != null) {
+            examRecordMapper.expandAnswers(record.getId(), json);
+            record.setAnswers(json);
+            record.setAnswerCodes(null);
+            expanded.increment();
+        }
+    }
+
+    // 试卷题目布局变更前调用（在变更事务之外），把该试卷的二进制作答按旧布局展开为JSON。
+    // 展开后、布局切换前按旧布局编码提交的作答，由变更提交后的 relayout 补充展开
+    public int expand(Long paperId) {
+        int total = expandChunks(paperId, null);
+        if (total > 0) {
+            log.info("试卷 {} 题目布局变更，已将 {} 条二进制作答展开为JSON", paperId, total);
+        }
+        return total;
+    }
+
+    // 试卷布局缓存失效后调用（事务提交后，本节点或收到变更的其他节点），previous 为失效前缓存的布局。
+    // 布局确有变化时，把变更期间仍按旧布局编码提交的作答展开为JSON，使其不依赖本节点保留的旧布局
+    public int relayout(Long paperId, AnswerLayout previous) {
+        AnswerLayout current = answerKeyCache.layout(paperId);
+        if (previous == null || current == null || current.sameAs(previous)) {
+            return 0;
+        }
+        int total = expandChunks(paperId, current);
+        if (total > 0) {
+            log.info("试卷 {} 题目布局已变更，补充展开 {} 条按旧布局编码的作答", paperId, total);
+        }
+        return total;
+    }
+
+    // 按主键分批展开试卷的二进制作答，每批独立事务；keep 非空时跳过已按该布局编码的
+    private int expandChunks(Long paperId, AnswerLayout keep) {
+        int chunk = Math.max(1, expandChunk);
+        long afterId = 0;
+        int total = 0;
+        while (true) {
+            LambdaQueryWrapper<ExamRecord> wrapper = new LambdaQueryWrapper<>();
+            wrapper.select(ExamRecord::getId, ExamRecord::getPaperId, ExamRecord::getAnswers,
+                    ExamRecord::getAnswerCodes);
+            wrapper.eq(ExamRecord::getPaperId, paperId);
+            wrapper.isNotNull(ExamRecord::getAnswerCodes);
+            wrapper.gt(ExamRecord::getId, afterId);
+            wrapper.orderByAsc(ExamRecord::getId);
+            wrapper.last("LIMIT " + chunk);
+            List<ExamRecord> records = examRecordMapper.selectList(wrapper);
+            if (records.isEmpty()) {
+                break;
+            }
+            afterId = records.get(records.size() - 1).getId();
+            boolean last = records.size() < chunk;
+            if (keep != null) {
+                records.removeIf(record -> keep.matches(record.getAnswerCodes()));
+            }
+            if (!records.isEmpty()) {
+                chunkTransaction.executeWithoutResult(status -> expandAll(records));
+                total += records.size();
+            }
+            if (last) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private void expandAll(List<ExamRecord> records) {
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+            ExamRecordMapper mapper = session.getMapper(ExamRecordMapper.class);
+            for (ExamRecord record : records) {
+                String json = json(record);
+                if (json != null) {
+                    mapper.expandAnswers(record.getId(), json);
+                }
+            }
+            session.flushStatements();
+            session.commit();
+        }
+        expanded.add(records.size());
+    }
+
+    // 把ID大于 afterId 的已交卷JSON作答分批转为二进制，返回扫描到的最大ID和转换条数
+    public Map<String, Object> compact(Long afterId, int limit) {
+        LambdaQueryWrapper<ExamRecord> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(ExamRecord::getId, ExamRecord::getPaperId, ExamRecord::getAnswers);
+        wrapper.gt(afterId != null, ExamRecord::getId, afterId);
+        wrapper.eq(ExamRecord::getStatus, 1);
+        wrapper.isNull(ExamRecord::getAnswerCodes);
+        wrapper.isNotNull(ExamRecord::getAnswers);
+        wrapper.orderByAsc(ExamRecord::getId);
+        wrapper.last("LIMIT " + Math.max(1, Math.min(limit, 5000)));
+        List<ExamRecord> records = examRecordMapper.selectList(wrapper);
+
+        List<ExamRecord> converted = new ArrayList<>();
+        Long lastId = afterId;
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+            ExamRecordMapper mapper = session.getMapper(ExamRecordMapper.class);
+            for (ExamRecord record : records) {
+                lastId = record.getId();
+                byte[] codes = encode(record.getPaperId(), record.getAnswers());
+                if (codes != null) {
+                    mapper.compactAnswers(record.getId(), codes);
+                    record.setAnswerCodes(codes);
+                    converted.add(record);
+                }
+            }
+            session.flushStatements();
+            session.commit();
+        }
+        compacted.add(converted.size());
+        // 与试卷布局变更并发时，按旧布局编码的记录改回JSON
+        for (ExamRecord record : converted) {
+            verify(record);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("scanned", records.size());
+        result.put("compacted", converted.size());
+        result.put("lastId", lastId);
+        return result;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("binary", binary);
+        stats.put("encoded", encoded.sum());
+        stats.put("jsonFallbacks", jsonFallbacks.sum());
+        stats.put("decoded", decoded.sum());
+        stats.put("undecodable", undecodable.sum());
+        stats.put("expanded", expanded.sum());
+        stats.put("compacted", compacted.sum());
+        return stats;
+    }
+
+    private byte[] encode(Long paperId, String answersJson) {
+        AnswerLayout layout = answerKeyCache.layout(paperId);
+        if (layout == null || layout.size() == 0) {
+            return null;
+        }
+        byte[] codes = layout.encode(answersJson);
+        return codes != null && codes.length <= MAX_CODES_BYTES ? codes : null;
+    }
+}
@@ -0,0 +1,261 @@
+package com.exam.service;
+
+import com.exam.cache.AnswerKeyCache;
+import com.exam.cache.CacheChangeLog;
+import com.exam.cache.PaperPayloadCache;
+import com.exam.entity.CacheChange;
+import com.exam.mapper.CacheChangeMapper;
+import com.exam.util.ThreadFactories;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 多节点缓存同步
+ * 每隔 poll-interval-ms 按主键读取 t_cache_change 中新增的变更，刷新对应的题目快照、试卷答案和预序列化响应，
+ * 本节点写入的变更也会再处理一次，覆盖事务提交前被重新加载的旧数据。缓存最多落后一个轮询间隔。
+ * 自增ID按分配顺序而非提交顺序可见，读到的ID之间出现空缺时记下，后续轮询补读，超过 gap-timeout-ms 视为已回滚。
+ * 最多跟踪 1000 个空缺，超出的无法补读，立即整体失效，并在 gap-timeout-ms 后再整体失效一次覆盖其间提交的变更。
+ * 连续超过 max-staleness-ms 未能轮询成功时，恢复后整体失效所有缓存。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CacheSyncPoller {
+
+    private static final int MAX_GAPS = 1000;
+
+    private final CacheChangeMapper cacheChangeMapper;
+    private final QuestionService questionService;
+    private final PaperService paperService;
+    private final AnswerKeyCache answerKeyCache;
+    private final PaperPayloadCache paperPayloadCache;
+    private final AnswerStorage answerStorage;
+
+    @Value("${exam.cache-sync.enabled:true}")
+    private boolean enabled;
+
+    @Value("${exam.cache-sync.poll-interval-ms:1000}")
+    private long pollIntervalMillis;
+
+    @Value("${exam.cache-sync.batch-size:500}")
+    private int batchSize;
+
+    @Value("${exam.cache-sync.gap-timeout-ms:30000}")
+    private long gapTimeoutMillis;
+
+    @Value("${exam.cache-sync.max-staleness-ms:10000}")
+    private long maxStalenessMillis;
+
+    @Value("${exam.cache-sync.retention-hours:24}")
+    private int retentionHours;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private ScheduledExecutorService poller;
+    private volatile long lastId;
+    // 尚未读到的ID -> 发现空缺的时间
+    private final Map<Long, Long> gaps = new LinkedHashMap<>();
+    private volatile long lastSuccess = System.currentTimeMillis();
+    private boolean failing;
+    // 空缺溢出后需再次整体失效的时间，0 为无
+    private long overflowReloadAt;
+
+    private final LongAdder polls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder lateApplied = new LongAdder();
+    private final LongAdder gapsExpired = new LongAdder();
+    private final LongAdder gapsOverflowed = new LongAdder();
+    private final LongAdder fullInvalidations = new LongAdder();
+    private final AtomicLong lastLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Long maxId = cacheChangeMapper.selectMaxId();
+        lastId = maxId == null ? 0 : maxId;
+        poller = Executors.newSingleThreadScheduledExecutor(
+                r -> ThreadFactories.newThread("exam-cache-sync", r, virtualThreads));
+        poller.scheduleWithFixedDelay(this::pollQuietly, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        if (retentionHours > 0) {
+            poller.scheduleWithFixedDelay(this::purgeQuietly, 1, 60, TimeUnit.MINUTES);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("lastId", lastId);
+        stats.put("pendingGaps", gaps.size());
+        stats.put("polls", polls.sum());
+        stats.put("failures", failures.sum());
+        stats.put("applied", applied.sum());
+        stats.put("lateApplied", lateApplied.sum());
+        stats.put("gapsExpired", gapsExpired.sum());
+        stats.put("gapsOverflowed", gapsOverflowed.sum());
+        stats.put("fullInvalidations", fullInvalidations.sum());
+        stats.put("lastLagMillis", lastLagMillis.get());
+        stats.put("maxLagMillis", maxLagMillis.get());
+        stats.put("stalenessMillis", enabled ? System.currentTimeMillis() - lastSuccess : 0);
+        return stats;
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+            if (failing) {
+                log.info("缓存同步已恢复");
+                failing = false;
+            }
+        } catch (Exception e) {
+            failures.increment();
+            if (!failing) {
+                log.warn("缓存同步轮询失败: {}", e.getMessage());
+                failing = true;
+            }
+        }
+    }
+
+    private void poll() {
+        List<CacheChange> late = gaps.isEmpty() ? List.of() : cacheChangeMapper.selectBatchIds(gaps.keySet());
+        List<CacheChange> changes = cacheChangeMapper.selectAfter(lastId, batchSize);
+        long now = System.currentTimeMillis();
+        polls.increment();
+
+        if (now - lastSuccess > maxStalenessMillis + pollIntervalMillis) {
+            // 长时间未同步，空缺可能已被当作回滚丢弃，整体失效
+            invalidateAll();
+            gaps.clear();
+        }
+
+        // 同一轮内的重复变更只处理一次
+        Set<String> pending = new LinkedHashSet<>();
+        for (CacheChange change : late) {
+            if (gaps.remove(change.getId()) != null) {
+                pending.add(key(change));
+                lateApplied.increment();
+            }
+        }
+        long overflowed = 0;
+        for (CacheChange change : changes) {
+            long tracked = Math.min(change.getId(), lastId + 1 + Math.max(0, MAX_GAPS - gaps.size()));
+            for (long id = lastId + 1; id < tracked; id++) {
+                gaps.put(id, now);
+            }
+            overflowed += change.getId() - tracked;
+            lastId = change.getId();
+            pending.add(key(change));
+            recordLag(change.getCreateTime(), change.getPollTime());
+        }
+        if (overflowed > 0) {
+            // 未跟踪的空缺提交后无法补读，整体失效代替逐条刷新
+            gapsOverflowed.add(overflowed);
+            log.warn("缓存变更日志空缺过多（{} 个未跟踪），整体失效缓存", overflowed);
+            invalidateAll();
+            overflowReloadAt = now + gapTimeoutMillis;
+        } else if (overflowReloadAt > 0 && now >= overflowReloadAt) {
+            overflowReloadAt = 0;
+            invalidateAll();
+        } else {
+            for (String key : pending) {
+                apply(key);
+            }
+            applied.add(pending.size());
+        }
+
+        expireGaps(now);
+        lastSuccess = now;
+        if (changes.size() == batchSize) {
+            // 积压较多时立即读取下一批
+            poller.execute(this::pollQuietly);
+        }
+    }
+
+    private void apply(String key) {
+        int colon = key.indexOf(':');
+        String type = key.substring(0, colon);
+        Long id = colon + 1 < key.length() ? Long.valueOf(key.substring(colon + 1)) : null;
+        switch (type) {
+            case CacheChangeLog.QUESTION -> questionService.refreshQuestion(id);
+            case CacheChangeLog.PAPER -> paperService.refreshPaper(id);
+            case CacheChangeLog.QUESTION_ALL -> reloadAll();
+            default -> log.warn("未知的缓存变更类型: {}", type);
+        }
+    }
+
+    private void invalidateAll() {
+        reloadAll();
+        fullInvalidations.increment();
+    }
+
+    private void reloadAll() {
+        questionService.reloadCaches();
+        answerKeyCache.invalidateAll().forEach(answerStorage::relayout);
+        paperPayloadCache.invalidateAll();
+    }
+
+    private void expireGaps(long now) {
+        Iterator<Map.Entry<Long, Long>> it = gaps.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Long> gap = it.next();
+            if (now - gap.getValue() > gapTimeoutMillis) {
+                it.remove();
+                gapsExpired.increment();
+            }
+        }
+    }
+
+    private void recordLag(LocalDateTime createTime, LocalDateTime pollTime) {
+        if (createTime == null || pollTime == null) {
+            return;
+        }
+        long lag = Math.max(0, Duration.between(createTime, pollTime).toMillis());
+        lastLagMillis.set(lag);
+        maxLagMillis.accumulateAndGet(lag, Math::max);
+    }
+
+    private void purgeQuietly() {
+        try {
+            int deleted = cacheChangeMapper.deleteBefore(LocalDateTime.now().minusHours(retentionHours));
+            if (deleted > 0) {
+                log.info("清理缓存变更日志 {} 条", deleted);
+            }
+        } catch (Exception e) {
+            log.warn("清理缓存变更日志失败: {}", e.getMessage());
+        }
+    }
+
+    private static String key(CacheChange change) {
+        return change.getEntityType() + ":" + (change.getEntityId() == null ? "" : change.getEntityId());
+    }
+}
@@ -0,0 +1,341 @@
+package com.exam.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.exam.cache.AnswerKey;
+import com.exam.cache.AnswerKeyCache;
+import com.exam.entity.ExamRecord;
+import com.exam.mapper.ExamRecordMapper;
+import com.exam.util.ThreadFactories;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 异步批量评分
+ * 提交时答案先落库（状态置为评分中），再放入有界队列；后台线程按批取出评分，
+ * 用JDBC批量更新写回分数。整批失败时逐条按指数退避重新入队，超过重试次数后交给定时巡检；
+ * 巡检把交卷超过 stale-after-ms 仍在评分中的记录重新入队，进程重启时则立即重新入队全部评分中的记录。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ExamGradingPipeline {
+
+    public static final int STATUS_GRADING = 2;
+
+    private final ExamRecordMapper examRecordMapper;
+    private final AnswerKeyCache answerKeyCache;
+    private final SqlSessionFactory sqlSessionFactory;
+    private final AnswerStorage answerStorage;
+    private final ExamStatistics examStatistics;
+    private final ExamLeaderboard examLeaderboard;
+
+    @Value("${exam.grading.workers:2}")
+    private int workers;
+
+    @Value("${exam.grading.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${exam.grading.batch-size:200}")
+    private int batchSize;
+
+    @Value("${exam.grading.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${exam.grading.retry-backoff-ms:1000}")
+    private long retryBackoffMillis;
+
+    @Value("${exam.grading.sweep-interval-ms:60000}")
+    private long sweepIntervalMillis;
+
+    @Value("${exam.grading.stale-after-ms:300000}")
+    private long staleAfterMillis;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private BlockingQueue<GradingTask> queue;
+    private final List<Thread> threads = new ArrayList<>();
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running = true;
+    // 本节点队列中或等待重试的记录，巡检不重复入队
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder graded = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+    private final LongAdder swept = new LongAdder();
+    private final LongAdder latencyTotalMillis = new LongAdder();
+    private final AtomicLong latencyMaxMillis = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        for (int i = 0; i < workers; i++) {
+            threads.add(ThreadFactories.newThread("exam-grading-" + i, this::runWorker, virtualThreads));
+        }
+        threads.forEach(Thread::start);
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                r -> ThreadFactories.newThread("exam-grading-sweeper", r, virtualThreads));
+        if (sweepIntervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::sweep, sweepIntervalMillis, sweepIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+        ThreadFactories.newThread("exam-grading-recovery", this::recover, virtualThreads).start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        scheduler.shutdownNow();
+        threads.forEach(Thread::interrupt);
+    }
+
+    // 放入评分队列，队列已满时返回false，由调用方同步评分
+    public boolean enqueue(Long recordId, String answers) {
+        inFlight.add(recordId);
+        if (queue.offer(new GradingTask(recordId, answers, System.nanoTime(), 0))) {
+            accepted.increment();
+            return true;
+        }
+        inFlight.remove(recordId);
+        rejected.increment();
+        return false;
+    }
+
+    public Map<String, Object> stats() {
+        long gradedCount = graded.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("accepted", accepted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("graded", gradedCount);
+        stats.put("batches", batches.sum());
+        stats.put("retried", retried.sum());
+        stats.put("abandoned", abandoned.sum());
+        stats.put("swept", swept.sum());
+        stats.put("avgLatencyMillis", gradedCount == 0 ? 0 : latencyTotalMillis.sum() / gradedCount);
+        stats.put("maxLatencyMillis", latencyMaxMillis.get());
+        return stats;
+    }
+
+    private void runWorker() {
+        List<GradingTask> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                GradingTask first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                if (first.attempts == 0) {
+                    // 重试的记录单独评分，一条异常数据不会反复拖累整批
+                    queue.drainTo(batch, batchSize - 1);
+                }
+                grade(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("批量评分失败, size={}", batch.size(), e);
+                retryLater(batch);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void grade(List<GradingTask> batch) {
+        List<Long> ids = new ArrayList<>(batch.size());
+        for (GradingTask task : batch) {
+            ids.add(task.recordId);
+        }
+        LambdaQueryWrapper<ExamRecord> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(ExamRecord::getId, ExamRecord::getUserId, ExamRecord::getPaperId, ExamRecord::getSubmitTime);
+        wrapper.in(ExamRecord::getId, ids);
+        Map<Long, ExamRecord> records = new HashMap<>();
+        for (ExamRecord record : examRecordMapper.selectList(wrapper)) {
+            records.put(record.getId(), record);
+        }
+
+        int[] scores = new int[batch.size()];
+        int[] updated = new int[batch.size()];
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+            ExamRecordMapper mapper = session.getMapper(ExamRecordMapper.class);
+            for (int i = 0; i < batch.size(); i++) {
+                GradingTask task = batch.get(i);
+                ExamRecord record = records.get(task.recordId);
+                AnswerKey answerKey = record == null ? null : answerKeyCache.get(record.getPaperId());
+                scores[i] = answerKey == null ? 0 : answerKey.grade(task.answers);
+                mapper.updateGradedScore(task.recordId, scores[i]);
+            }
+            // 同一条语句的批量结果按加入顺序返回各行的更新数
+            int i = 0;
+            for (BatchResult result : session.flushStatements()) {
+                for (int count : result.getUpdateCounts()) {
+                    updated[i++] = count;
+                }
+            }
+            session.commit();
+        }
+        // 提交成功后再计入统计；更新数为0说明已被其他评分（重新入队或其他节点）写回，不重复计入
+        for (int i = 0; i < batch.size(); i++) {
+            ExamRecord record = records.get(batch.get(i).recordId);
+            if (record != null && updated[i] == 1) {
+                examStatistics.record(record.getId(), record.getPaperId(), null, batch.get(i).answers, scores[i]);
+                examLeaderboard.record(record.getPaperId(), record.getUserId(), record.getId(), scores[i],
+                        record.getSubmitTime());
+            }
+        }
+
+        long now = System.nanoTime();
+        for (GradingTask task : batch) {
+            long latency = TimeUnit.NANOSECONDS.toMillis(now - task.acceptedAt);
+            latencyTotalMillis.add(latency);
+            latencyMaxMillis.accumulateAndGet(latency, Math::max);
+        }
+        graded.add(batch.size());
+        batches.increment();
+        inFlight.removeAll(ids);
+    }
+
+    // 整批失败（如数据库短暂不可用）时逐条延迟重新入队，第n次重试等待 retry-backoff-ms * 2^(n-1)；
+    // 超过重试次数的记录仍为评分中状态，由定时巡检重新入队
+    private void retryLater(List<GradingTask> batch) {
+        for (GradingTask task : batch) {
+            int attempt = task.attempts + 1;
+            if (attempt > maxRetries || !running) {
+                inFlight.remove(task.recordId);
+                abandoned.increment();
+                continue;
+            }
+            GradingTask retry = new GradingTask(task.recordId, task.answers, task.acceptedAt, attempt);
+            long delay = retryBackoffMillis << Math.min(attempt - 1, 16);
+            try {
+                scheduler.schedule(() -> requeue(retry), delay, TimeUnit.MILLISECONDS);
+                retried.increment();
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(task.recordId);
+                abandoned.increment();
+            }
+        }
+    }
+
+    private void requeue(GradingTask task) {
+        if (!running || !queue.offer(task)) {
+            // 队列已满，留给巡检
+            inFlight.remove(task.recordId);
+            abandoned.increment();
+        }
+    }
+
+    // 定时巡检：交卷超过 stale-after-ms 仍在评分中的记录（重试耗尽、队列满或评分节点宕机）重新入队，队列满时等下次巡检
+    private void sweep() {
+        try {
+            int total = requeuePending(LocalDateTime.now().minus(Duration.ofMillis(staleAfterMillis)), false);
+            if (total > 0) {
+                swept.add(total);
+                log.warn("重新评分长时间处于评分中的考试记录 {} 条", total);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("评分巡检失败", e);
+        }
+    }
+
+    // 启动时将上次未完成评分的记录重新入队，队列满时等待；
+    // 多个节点会各自重新入队，写回分数只对仍处于评分中的记录生效，统计只计一次
+    private void recover() {
+        try {
+            int total = requeuePending(null, true);
+            if (total > 0) {
+                log.info("重新评分未完成的考试记录 {} 条", total);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("恢复评分队列失败", e);
+        }
+    }
+
+    // 按主键分页把评分中的记录重新入队，跳过本节点已在队列中的；submittedBefore 非空时只取此前交卷的，
+    // wait 为 false 时队列满即停止
+    private int requeuePending(LocalDateTime submittedBefore, boolean wait) throws InterruptedException {
+        long afterId = 0;
+        int total = 0;
+        while (running) {
+            LambdaQueryWrapper<ExamRecord> wrapper = new LambdaQueryWrapper<>();
+            wrapper.select(ExamRecord::getId, ExamRecord::getPaperId, ExamRecord::getAnswers,
+                    ExamRecord::getAnswerCodes);
+            wrapper.eq(ExamRecord::getStatus, STATUS_GRADING);
+            wrapper.lt(submittedBefore != null, ExamRecord::getSubmitTime, submittedBefore);
+            wrapper.gt(ExamRecord::getId, afterId);
+            wrapper.orderByAsc(ExamRecord::getId);
+            wrapper.last("LIMIT " + batchSize);
+            List<ExamRecord> pending = examRecordMapper.selectList(wrapper);
+            for (ExamRecord record : pending) {
+                afterId = record.getId();
+                if (!inFlight.add(record.getId())) {
+                    continue;
+                }
+                GradingTask task = new GradingTask(record.getId(), answerStorage.json(record), System.nanoTime(), 0);
+                if (wait) {
+                    queue.put(task);
+                } else if (!queue.offer(task)) {
+                    inFlight.remove(record.getId());
+                    return total;
+                }
+                accepted.increment();
+                total++;
+            }
+            if (pending.size() < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private static final class GradingTask {
+        private final Long recordId;
+        private final String answers;
+        private final long acceptedAt;
+        // 已重试次数
+        private final int attempts;
+
+        private GradingTask(Long recordId, String answers, long acceptedAt, int attempts) {
+            this.recordId = recordId;
+            this.answers = answers;
+            this.acceptedAt = acceptedAt;
+            this.attempts = attempts;
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.exam.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.exam.cache.AnswerKey;
+import com.exam.cache.AnswerKeyCache;
+import com.exam.cache.ScoreBoard;
+import com.exam.entity.ExamRecord;
+import com.exam.entity.User;
+import com.exam.mapper.ExamRecordMapper;
+import com.exam.mapper.UserMapper;
+import com.exam.util.ThreadFactories;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 试卷排行榜
+ * 每份试卷一个 ScoreBoard，首次访问时从数据库加载该卷已评分的记录，之后由交卷和评分结果增量更新。
+ * 其他节点的评分结果每 sync-interval-ms 按 grade_time 增量读取一次，往回多读 sync-overlap-ms 覆盖提交晚于评分时间的事务。
+ * 重复记录同一条成绩不产生变化，因此加载、同步与并发交卷的先后顺序不影响结果。
+ * 最多保留 max-papers 份试卷，超出时淘汰最久未访问的；启动时在后台预加载近期有交卷的试卷。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ExamLeaderboard {
+
+    private static final int SYNC_BATCH = 5000;
+
+    private final ExamRecordMapper examRecordMapper;
+    private final UserMapper userMapper;
+    private final AnswerKeyCache answerKeyCache;
+
+    @Value("${exam.leaderboard.max-papers:200}")
+    private int maxPapers;
+
+    @Value("${exam.leaderboard.warm-hours:24}")
+    private int warmHours;
+
+    @Value("${exam.leaderboard.max-top:200}")
+    private int maxTop;
+
+    @Value("${exam.leaderboard.sync-interval-ms:1000}")
+    private long syncIntervalMillis;
+
+    @Value("${exam.leaderboard.sync-overlap-ms:5000}")
+    private long syncOverlapMillis;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final Map<Long, Board> boards = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private ScheduledExecutorService syncer;
+    // 已同步到的评分完成时间（数据库时钟）
+    private volatile LocalDateTime syncedUntil;
+    private boolean syncFailing;
+    private final LongAdder syncPolls = new LongAdder();
+    private final LongAdder syncRead = new LongAdder();
+    private final LongAdder syncFailures = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        if (warmHours > 0) {
+            ThreadFactories.newThread("exam-leaderboard-warmup", this::warmUp, virtualThreads).start();
+        }
+        if (syncIntervalMillis > 0) {
+            syncedUntil = examRecordMapper.selectMaxGradeTime();
+            syncer = Executors.newSingleThreadScheduledExecutor(
+                    r -> ThreadFactories.newThread("exam-leaderboard-sync", r, virtualThreads));
+            syncer.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMillis, syncIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (syncer != null) {
+            syncer.shutdownNow();
+        }
+    }
+
+    // 记录一次已落库的评分结果，试卷未加载时忽略（加载时会从数据库读到）
+    public void record(Long paperId, Long userId, Long recordId, int score, LocalDateTime submitTime) {
+        if (paperId == null || userId == null || recordId == null) {
+            return;
+        }
+        Board board = boards.get(paperId);
+        if (board != null) {
+            board.scores.offer(userId, recordId, score, epochMillis(submitTime));
+        }
+    }
+
+    // 前 limit 名
+    public List<Map<String, Object>> top(Long paperId, int limit) {
+        List<ScoreBoard.Entry> entries = board(paperId).top(Math.min(Math.max(limit, 0), maxTop));
+        List<Long> userIds = new ArrayList<>(entries.size());
+        for (ScoreBoard.Entry entry : entries) {
+            userIds.add(entry.getUserId());
+        }
+        Map<Long, String> names = realNames(userIds);
+        List<Map<String, Object>> result = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            ScoreBoard.Entry entry = entries.get(i);
+            Map<String, Object> item = toMap(entry);
+            item.put("rank", i + 1);
+            item.put("realName", names.get(entry.getUserId()));
+            result.add(item);
+        }
+        return result;
+    }
+
+    // 学生在试卷中的名次和百分位（排在其后及本人占全部考生的百分比，第一名为100）
+    public Map<String, Object> rank(Long paperId, Long userId) {
+        ScoreBoard scores = board(paperId);
+        ScoreBoard.Entry entry;
+        int rank;
+        int total;
+        synchronized (scores) {
+            entry = scores.get(userId);
+            rank = scores.rankOf(userId);
+            total = scores.size();
+        }
+        if (entry == null) {
+            throw new RuntimeException("暂无该试卷的成绩");
+        }
+        Map<String, Object> result = toMap(entry);
+        result.put("paperId", paperId);
+        result.put("rank", rank);
+        result.put("total", total);
+        result.put("percentile", (total - rank + 1) * 100.0 / total);
+        return result;
+    }
+
+    public void invalidate(Long paperId) {
+        if (paperId != null) {
+            boards.remove(paperId);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long entries = 0;
+        for (Board board : boards.values()) {
+            entries += board.scores.size();
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("papers", boards.size());
+        stats.put("entries", entries);
+        stats.put("loads", loads.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("syncedUntil", syncedUntil);
+        stats.put("syncPolls", syncPolls.sum());
+        stats.put("syncRead", syncRead.sum());
+        stats.put("syncFailures", syncFailures.sum());
+        return stats;
+    }
+
+    private ScoreBoard board(Long paperId) {
+        Board board = boards.get(paperId);
+        if (board == null) {
+            AnswerKey answerKey = answerKeyCache.get(paperId);
+            if (answerKey == null) {
+                throw new RuntimeException("试卷不存在");
+            }
+            board = boards.computeIfAbsent(paperId, id -> new Board(new ScoreBoard(answerKey.getTotalScore())));
+        }
+        board.lastAccess = System.currentTimeMillis();
+        if (!board.loaded) {
+            load(paperId, board);
+            evictIfNeeded();
+        }
+        return board.scores;
+    }
+
+    // 加载期间的交卷直接写入同一个 ScoreBoard，与数据库中读到的记录合并
+    private void load(Long paperId, Board board) {
+        synchronized (board) {
+            if (board.loaded) {
+                return;
+            }
+            LambdaQueryWrapper<ExamRecord> wrapper = new LambdaQueryWrapper<>();
+            wrapper.select(ExamRecord::getId, ExamRecord::getUserId, ExamRecord::getScore, ExamRecord::getSubmitTime);
+            wrapper.eq(ExamRecord::getPaperId, paperId);
+            wrapper.eq(ExamRecord::getStatus, 1);
+            for (ExamRecord record : examRecordMapper.selectList(wrapper)) {
+                board.scores.offer(record.getUserId(), record.getId(),
+                        record.getScore() == null ? 0 : record.getScore(), epochMillis(record.getSubmitTime()));
+            }
+            board.loaded = true;
+            loads.increment();
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+            if (syncFailing) {
+                log.info("排行榜同步已恢复");
+                syncFailing = false;
+            }
+        } catch (Exception e) {
+            syncFailures.increment();
+            if (!syncFailing) {
+                log.warn("排行榜同步失败: {}", e.getMessage());
+                syncFailing = true;
+            }
+        }
+    }
+
+    // 读取上次同步以来评分完成的记录（含其他节点），只处理已加载的试卷，未加载的试卷加载时会从数据库读到
+    private void sync() {
+        LocalDateTime upper = examRecordMapper.selectMaxGradeTime();
+        syncPolls.increment();
+        List<Long> paperIds = new ArrayList<>(boards.keySet());
+        LocalDateTime since = syncedUntil == null ? null : syncedUntil.minusNanos(syncOverlapMillis * 1_000_000);
+        while (!paperIds.isEmpty()) {
+            LambdaQueryWrapper<ExamRecord> wrapper = new LambdaQueryWrapper<>();
+            wrapper.select(ExamRecord::getId, ExamRecord::getUserId, ExamRecord::getPaperId, ExamRecord::getScore,
+                    ExamRecord::getSubmitTime, ExamRecord::getGradeTime);
+            wrapper.in(ExamRecord::getPaperId, paperIds);
+            wrapper.eq(ExamRecord::getStatus, 1);
+            wrapper.isNotNull(ExamRecord::getGradeTime);
+            wrapper.ge(since != null, ExamRecord::getGradeTime, since);
+            wrapper.orderByAsc(ExamRecord::getGradeTime);
+            wrapper.last("LIMIT " + SYNC_BATCH);
+            List<ExamRecord> records = examRecordMapper.selectList(wrapper);
+            for (ExamRecord record : records) {
+                record(record.getPaperId(), record.getUserId(), record.getId(),
+                        record.getScore() == null ? 0 : record.getScore(), record.getSubmitTime());
+            }
+            syncRead.add(records.size());
+            if (records.size() < SYNC_BATCH) {
+                break;
+            }
+            // 积压较多时从本批最后的评分时间继续，同一毫秒的记录会重读一次
+            LocalDateTime last = records.get(records.size() - 1).getGradeTime();
+            if (upper == null || last.isAfter(upper) || last.equals(since)) {
+                upper = last;
+            }
+            if (last.equals(since)) {
+                break;
+            }
+            since = last;
+        }
+        if (upper != null && (syncedUntil == null || upper.isAfter(syncedUntil))) {
+            syncedUntil = upper;
+        }
+    }
+
+    private void evictIfNeeded() {
+        while (boards.size() > maxPapers) {
+            Map.Entry<Long, Board> coldest = null;
+            for (Map.Entry<Long, Board> entry : boards.entrySet()) {
+                if (coldest == null || entry.getValue().lastAccess < coldest.getValue().lastAccess) {
+                    coldest = entry;
+                }
+            }
+            if (coldest == null || !boards.remove(coldest.getKey(), coldest.getValue())) {
+                return;
+            }
+            evictions.increment();
+        }
+    }
+
+    private void warmUp() {
+        try {
+            QueryWrapper<ExamRecord> wrapper = new QueryWrapper<>();
+            wrapper.select("DISTINCT paper_id").eq("status", 1)
+                    .ge("submit_time", LocalDateTime.now().minusHours(warmHours));
+            List<Object> paperIds = examRecordMapper.selectObjs(wrapper);
+            int loaded = 0;
+            for (Object paperId : paperIds) {
+                if (loaded >= maxPapers) {
+                    break;
+                }
+                try {
+                    board(((Number) paperId).longValue());
+                    loaded++;
+                } catch (RuntimeException e) {
+                    log.warn("预加载排行榜失败, paperId={}", paperId, e);
+                }
+            }
+            if (loaded > 0) {
+                log.info("预加载排行榜 {} 份试卷", loaded);
+            }
+        } catch (Exception e) {
+            log.error("预加载排行榜失败", e);
+        }
+    }
+
+    private Map<Long, String> realNames(List<Long> userIds) {
+        Map<Long, String> names = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return names;
+        }
+        LambdaQueryWrapper<User> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(User::getId, User::getRealName);
+        wrapper.in(User::getId, userIds);
+        for (User user : userMapper.selectList(wrapper)) {
+            names.put(user.getId(), user.getRealName());
+        }
+        return names;
+    }
+
+    private static Map<String, Object> toMap(ScoreBoard.Entry entry) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("userId", entry.getUserId());
+        item.put("recordId", entry.getRecordId());
+        item.put("score", entry.getScore());
+        item.put("submitTime", entry.getSubmitTime() == Long.MAX_VALUE ? null
+                : LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.getSubmitTime()), ZoneId.systemDefault()));
+        return item;
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time == null ? Long.MAX_VALUE : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static final class Board {
+        private final ScoreBoard scores;
+        private volatile boolean loaded;
+        private volatile long lastAccess;
+
+        private Board(ScoreBoard scores) {
+            this.scores = scores;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.exam.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.exam.entity.ExamRecord;
+import com.exam.mapper.ExamRecordMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * 考试记录导出
+ * 按主键分批读取（id > 上一批最大ID ORDER BY id LIMIT n），每批一个只读事务，读完即归还连接再写入响应流。
+ * 内存占用与记录总数无关，客户端读得慢时也不会长时间占用数据库连接。
+ */
+@Component
+@RequiredArgsConstructor
+public class ExamRecordExporter {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // 每批读取的行数，写完一批刷新一次，让客户端尽早收到数据
+    private static final int CHUNK_ROWS = 500;
+
+    private final ExamRecordMapper examRecordMapper;
+    private final ObjectMapper objectMapper;
+    private final AnswerStorage answerStorage;
+    private final PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnly;
+
+    @PostConstruct
+    public void init() {
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    public long exportCsv(Long paperId, Long userId, Integer status, LocalDateTime from, LocalDateTime to,
+                          Writer writer) throws IOException {
+        long rows = 0;
+        // BOM，便于Excel识别UTF-8
+        writer.write('\uFEFF');
+        writer.write("id,userId,paperId,score,status,startTime,submitTime,createTime,answers\n");
+        Long afterId = null;
+        List<ExamRecord> chunk;
+        do {
+            chunk = readChunk(paperId, userId, status, from, to, afterId);
+            for (ExamRecord record : chunk) {
+                writer.write(String.valueOf(record.getId()));
+                writer.write(',');
+                writer.write(String.valueOf(record.getUserId()));
+                writer.write(',');
+                writer.write(String.valueOf(record.getPaperId()));
+                writer.write(',');
+                writer.write(record.getScore() == null ? "" : record.getScore().toString());
+                writer.write(',');
+                writer.write(record.getStatus() == null ? "" : record.getStatus().toString());
+                writer.write(',');
+                writer.write(formatTime(record.getStartTime()));
+                writer.write(',');
+                writer.write(formatTime(record.getSubmitTime()));
+                writer.write(',');
+                writer.write(formatTime(record.getCreateTime()));
+                writer.write(',');
+                writeCsvField(writer, answerStorage.json(record));
+                writer.write('\n');
+                afterId = record.getId();
+            }
+            rows += chunk.size();
+            writer.flush();
+        } while (chunk.size() == CHUNK_ROWS);
+        return rows;
+    }
+
+    public long exportNdjson(Long paperId, Long userId, Integer status, LocalDateTime from, LocalDateTime to,
+                             Writer writer) throws IOException {
+        long rows = 0;
+        try (SequenceWriter sequence = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n")
+                .writeValues(writer)) {
+            Long afterId = null;
+            List<ExamRecord> chunk;
+            do {
+                chunk = readChunk(paperId, userId, status, from, to, afterId);
+                for (ExamRecord record : chunk) {
+                    record.setAnswers(answerStorage.json(record));
+                    sequence.write(record);
+                    afterId = record.getId();
+                }
+                rows += chunk.size();
+                sequence.flush();
+            } while (chunk.size() == CHUNK_ROWS);
+        }
+        if (rows > 0) {
+            writer.write('\n');
+        }
+        writer.flush();
+        return rows;
+    }
+
+    // 读取ID大于 afterId 的下一批，事务结束即归还连接
+    private List<ExamRecord> readChunk(Long paperId, Long userId, Integer status, LocalDateTime from,
+                                       LocalDateTime to, Long afterId) {
+        LambdaQueryWrapper<ExamRecord> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(ExamRecord::getId, ExamRecord::getUserId, ExamRecord::getPaperId, ExamRecord::getAnswers,
+                ExamRecord::getAnswerCodes, ExamRecord::getScore, ExamRecord::getStatus, ExamRecord::getStartTime,
+                ExamRecord::getSubmitTime, ExamRecord::getCreateTime);
+        wrapper.gt(afterId != null, ExamRecord::getId, afterId);
+        wrapper.eq(paperId != null, ExamRecord::getPaperId, paperId);
+        wrapper.eq(userId != null, ExamRecord::getUserId, userId);
+        wrapper.eq(status != null, ExamRecord::getStatus, status);
+        wrapper.ge(from != null, ExamRecord::getCreateTime, from);
+        wrapper.lt(to != null, ExamRecord::getCreateTime, to);
+        wrapper.orderByAsc(ExamRecord::getId);
+        wrapper.last("LIMIT " + CHUNK_ROWS);
+        return readOnly.execute(tx -> examRecordMapper.selectList(wrapper));
+    }
+
+    private static String formatTime(LocalDateTime time) {
+        return time == null ? "" : TIME_FORMAT.format(time);
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+}
@@ -1,19 +1,24 @@
 package com.exam.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.exam.cache.AnswerKey;
+import com.exam.cache.AnswerKeyCache;
+import com.exam.config.DataSourceRouting;
+import com.exam.config.ExamMetrics;
 import com.exam.entity.ExamRecord;
-import com.exam.entity.Paper;
-import com.exam.entity.Question;
 import com.exam.mapper.ExamRecordMapper;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.exam.util.KeysetPage;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -21,24 +26,61 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class ExamRecordService extends ServiceImpl<ExamRecordMapper, ExamRecord> {
     
-    private final PaperService paperService;
-    private final QuestionService questionService;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AnswerKeyCache answerKeyCache;
+    private final ExamGradingPipeline gradingPipeline;
+    private final AnswerAutosaveBuffer autosaveBuffer;
+    private final AnswerStorage answerStorage;
+    private final ExamMetrics examMetrics;
+    private final ExamStatistics examStatistics;
+    private final ExamLeaderboard examLeaderboard;
+    private final DataSourceRouting dataSourceRouting;
     
-    public Page<ExamRecord> getExamRecordPage(Integer page, Integer limit, Long userId, Integer status) {
+    // 列表默认不查作答列，detail 为 true 时查整行并填充 answers
+    @Transactional(readOnly = true)
+    public Page<ExamRecord> getExamRecordPage(Integer page, Integer limit, Long userId, Integer status, boolean detail) {
         Page<ExamRecord> pageParam = new Page<>(page, limit);
+        LambdaQueryWrapper<ExamRecord> wrapper = recordFilter(userId, status, detail);
+        wrapper.orderByDesc(ExamRecord::getCreateTime);
+        Page<ExamRecord> result = this.page(pageParam, wrapper);
+        if (detail) {
+            answerStorage.fillJson(result.getRecords());
+        }
+        return result;
+    }
+    
+    // 游标分页，after 为上一页返回的 nextCursor
+    @Transactional(readOnly = true)
+    public KeysetPage<ExamRecord> getExamRecordKeysetPage(String after, Integer limit, Long userId, Integer status,
+                                                          boolean withTotal, boolean detail) {
+        KeysetPage<ExamRecord> result = KeysetPage.query(this, recordFilter(userId, status, detail),
+                ExamRecord::getCreateTime, ExamRecord::getId, after, limit, withTotal);
+        if (detail) {
+            answerStorage.fillJson(result.getRecords());
+        }
+        return result;
+    }
+    
+    private LambdaQueryWrapper<ExamRecord> recordFilter(Long userId, Integer status, boolean detail) {
         LambdaQueryWrapper<ExamRecord> wrapper = new LambdaQueryWrapper<>();
+        if (!detail) {
+            wrapper.select(ExamRecord::getId, ExamRecord::getUserId, ExamRecord::getPaperId, ExamRecord::getScore,
+                    ExamRecord::getStatus, ExamRecord::getStartTime, ExamRecord::getSubmitTime,
+                    ExamRecord::getCreateTime);
+        }
         if (userId != null) {
             wrapper.eq(ExamRecord::getUserId, userId);
         }
         if (status != null) {
             wrapper.eq(ExamRecord::getStatus, status);
         }
-        wrapper.orderByDesc(ExamRecord::getCreateTime);
-        return this.page(pageParam, wrapper);
+        return wrapper;
     }
     
     public ExamRecord startExam(Long userId, Long paperId) {
+        return examMetrics.examStart().record(() -> doStartExam(userId, paperId));
+    }
+    
+    private ExamRecord doStartExam(Long userId, Long paperId) {
         ExamRecord record = new ExamRecord();
         record.setUserId(userId);
         record.setPaperId(paperId);
@@ -46,16 +88,25 @@ public class ExamRecordService extends ServiceImpl<ExamRecordMapper, ExamRecord>
         record.setStartTime(LocalDateTime.now());
         record.setScore(0);
         this.save(record);
+        dataSourceRouting.markWritten(userId);
         return record;
     }
     
-    public void submitExam(Long recordId, String answers) {
-        ExamRecord record = this.getById(recordId);
-        if (record == null) {
-            throw new RuntimeException("考试记录不存在");
+    // ownerId 非空时校验记录归属（学生只能操作自己的记录）；submitKey 为客户端幂等键，
+    // 重复提交（重试或并发）不再评分，直接返回首次交卷保存的结果，duplicate 为 true
+    public Map<String, Object> submitExam(Long recordId, String answers, Long ownerId, String submitKey) {
+        return examMetrics.submit(false).record(() -> doSubmitExam(recordId, answers, ownerId, submitKey));
+    }
+    
+    private Map<String, Object> doSubmitExam(Long recordId, String answers, Long ownerId, String submitKey) {
+        ExamRecord record = getSubmitState(recordId, ownerId);
+        if (!Integer.valueOf(0).equals(record.getStatus())) {
+            return duplicateResult(record, submitKey, false);
         }
         
-        record.setAnswers(answers);
+        // 先合并自动保存中尚未落库的作答，能编码时以二进制保存
+        answers = autosaveBuffer.mergeForSubmit(recordId, answers, record.getAnswers());
+        answerStorage.store(record, answers);
         record.setStatus(1);
         record.setSubmitTime(LocalDateTime.now());
         
@@ -63,30 +114,174 @@ public class ExamRecordService extends ServiceImpl<ExamRecordMapper, ExamRecord>
         int score = calculateScore(record);
         record.setScore(score);
         
-        this.updateById(record);
+        // 只更新进行中的记录，一条语句完成交卷并判断是否抢到；answers、answerCodes 之一为空，需显式写入NULL
+        LambdaUpdateWrapper<ExamRecord> wrapper = new LambdaUpdateWrapper<>();
+        wrapper.set(ExamRecord::getAnswers, record.getAnswers());
+        wrapper.set(ExamRecord::getAnswerCodes, record.getAnswerCodes());
+        wrapper.set(ExamRecord::getStatus, record.getStatus());
+        wrapper.set(ExamRecord::getSubmitTime, record.getSubmitTime());
+        wrapper.set(ExamRecord::getScore, score);
+        wrapper.set(ExamRecord::getSubmitKey, submitKey);
+        wrapper.setSql("grade_time = CURRENT_TIMESTAMP(3)");
+        wrapper.eq(ExamRecord::getId, recordId);
+        wrapper.eq(ExamRecord::getStatus, 0);
+        boolean updated = this.update(wrapper);
+        autosaveBuffer.discard(recordId);
+        if (!updated) {
+            // 并发的另一次提交先完成
+            return duplicateResult(getSubmitState(recordId, ownerId), submitKey, false);
+        }
+        answerStorage.verify(record);
+        dataSourceRouting.markWritten(record.getUserId());
+        examStatistics.record(recordId, record.getPaperId(), record.getAnswerCodes(), record.getAnswers(), score);
+        examLeaderboard.record(record.getPaperId(), record.getUserId(), recordId, score, record.getSubmitTime());
+        return submitResult(record, false);
     }
     
-    public int calculateScore(ExamRecord record) {
-        Paper paper = paperService.getById(record.getPaperId());
-        if (paper == null || paper.getQuestionIds() == null) {
-            return 0;
+    // 异步提交：答案落库并标记为评分中，由评分队列批量计算分数；重复提交同 submitExam
+    public Map<String, Object> submitExamAsync(Long recordId, String answers, Long ownerId, String submitKey) {
+        return examMetrics.submit(true).record(() -> doSubmitExamAsync(recordId, answers, ownerId, submitKey));
+    }
+    
+    private Map<String, Object> doSubmitExamAsync(Long recordId, String answers, Long ownerId, String submitKey) {
+        ExamRecord stored = getSubmitState(recordId, ownerId);
+        if (!Integer.valueOf(0).equals(stored.getStatus())) {
+            return duplicateResult(stored, submitKey, true);
         }
-        
-        List<Question> questions = questionService.getQuestionsByIds(paper.getQuestionIds());
-        Map<String, String> userAnswers;
-        try {
-            userAnswers = objectMapper.readValue(record.getAnswers(), new TypeReference<Map<String, String>>() {});
-        } catch (JsonProcessingException e) {
-            return 0;
+        answers = autosaveBuffer.mergeForSubmit(recordId, answers, stored.getAnswers());
+        answerStorage.store(stored, answers);
+        LambdaUpdateWrapper<ExamRecord> wrapper = new LambdaUpdateWrapper<>();
+        wrapper.set(ExamRecord::getAnswers, stored.getAnswers());
+        wrapper.set(ExamRecord::getAnswerCodes, stored.getAnswerCodes());
+        wrapper.set(ExamRecord::getStatus, ExamGradingPipeline.STATUS_GRADING);
+        LocalDateTime submitTime = LocalDateTime.now();
+        wrapper.set(ExamRecord::getSubmitTime, submitTime);
+        wrapper.set(ExamRecord::getSubmitKey, submitKey);
+        wrapper.eq(ExamRecord::getId, recordId);
+        wrapper.eq(ExamRecord::getStatus, 0);
+        boolean updated = this.update(wrapper);
+        autosaveBuffer.discard(recordId);
+        if (!updated) {
+            return duplicateResult(getSubmitState(recordId, ownerId), submitKey, true);
         }
+        answerStorage.verify(stored);
+        dataSourceRouting.markWritten(stored.getUserId());
+        stored.setStatus(ExamGradingPipeline.STATUS_GRADING);
         
-        int totalScore = 0;
-        for (Question question : questions) {
-            String userAnswer = userAnswers.get(question.getId().toString());
-            if (userAnswer != null && userAnswer.equalsIgnoreCase(question.getAnswer())) {
-                totalScore += question.getScore();
+        if (!gradingPipeline.enqueue(recordId, answers)) {
+            // 队列已满，退化为同步评分
+            int score = calculateScore(stored);
+            if (this.getBaseMapper().updateGradedScore(recordId, score) > 0) {
+                examStatistics.record(recordId, stored.getPaperId(), stored.getAnswerCodes(), stored.getAnswers(), score);
+                examLeaderboard.record(stored.getPaperId(), stored.getUserId(), recordId, score, submitTime);
+                stored.setStatus(1);
+                stored.setScore(score);
+            }
+        }
+        return submitResult(stored, false);
+    }
+    
+    // 交卷前只读取判断归属、状态和重复提交所需的列，以及进行中记录已落库的自动保存作答
+    private ExamRecord getSubmitState(Long recordId, Long ownerId) {
+        LambdaQueryWrapper<ExamRecord> query = new LambdaQueryWrapper<>();
+        query.select(ExamRecord::getId, ExamRecord::getUserId, ExamRecord::getPaperId, ExamRecord::getStatus,
+                ExamRecord::getScore, ExamRecord::getSubmitKey, ExamRecord::getAnswers);
+        query.eq(ExamRecord::getId, recordId);
+        ExamRecord record = this.getOne(query);
+        if (record == null) {
+            throw new RuntimeException("考试记录不存在");
+        }
+        checkOwner(record, ownerId);
+        if (record.getStatus() == null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "考试记录状态异常");
+        }
+        return record;
+    }
+    
+    // 两次提交都带了幂等键且不同，说明不是重试，拒绝后一次
+    private Map<String, Object> duplicateResult(ExamRecord record, String submitKey, boolean async) {
+        if (submitKey != null && record.getSubmitKey() != null && !submitKey.equals(record.getSubmitKey())) {
+            throw new RuntimeException("该考试已提交");
+        }
+        examMetrics.submitDuplicate(async);
+        return submitResult(record, true);
+    }
+    
+    private Map<String, Object> submitResult(ExamRecord record, boolean duplicate) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("recordId", record.getId());
+        result.put("status", record.getStatus());
+        if (Integer.valueOf(ExamGradingPipeline.STATUS_GRADING).equals(record.getStatus())) {
+            result.put("message", "评分中");
+        } else {
+            result.put("score", record.getScore());
+        }
+        result.put("duplicate", duplicate);
+        return result;
+    }
+    
+    // 把旧JSON作答分批转为二进制编码
+    public Map<String, Object> compactAnswers(Long afterId, int limit) {
+        return answerStorage.compact(afterId, limit);
+    }
+    
+    // 自动保存作答增量（题目ID -> 答案，空答案表示清除），返回已作答题数
+    public int autosaveAnswers(Long recordId, Map<String, String> deltas, Long ownerId) {
+        return autosaveBuffer.save(recordId, deltas, ownerId);
+    }
+    
+    // 读取考试记录，进行中的记录叠加尚未落库的自动保存作答
+    public ExamRecord getRecordWithAutosave(Long recordId, Long ownerId) {
+        ExamRecord record = this.getById(recordId);
+        if (record != null) {
+            checkOwner(record, ownerId);
+        }
+        if (record != null && Integer.valueOf(0).equals(record.getStatus())) {
+            String buffered = autosaveBuffer.peek(recordId);
+            if (buffered != null) {
+                record.setAnswers(buffered);
             }
+        } else if (record != null) {
+            answerStorage.fillJson(List.of(record));
+        }
+        return record;
+    }
+    
+    // 查询评分结果，只读取状态和分数列
+    public Map<String, Object> getSubmitResult(Long recordId, Long ownerId) {
+        LambdaQueryWrapper<ExamRecord> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(ExamRecord::getId, ExamRecord::getUserId, ExamRecord::getStatus, ExamRecord::getScore);
+        wrapper.eq(ExamRecord::getId, recordId);
+        ExamRecord record = this.getOne(wrapper);
+        if (record == null) {
+            throw new RuntimeException("考试记录不存在");
+        }
+        checkOwner(record, ownerId);
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("recordId", recordId);
+        result.put("status", record.getStatus());
+        if (Integer.valueOf(ExamGradingPipeline.STATUS_GRADING).equals(record.getStatus())) {
+            result.put("message", "评分中");
+        } else {
+            result.put("score", record.getScore());
         }
-        return totalScore;
+        return result;
+    }
+    
+    private void checkOwner(ExamRecord record, Long ownerId) {
+        if (record != null && ownerId != null && !ownerId.equals(record.getUserId())) {
+            throw new RuntimeException("无权访问该考试记录");
+        }
+    }
+    
+    public int calculateScore(ExamRecord record) {
+        return examMetrics.grade().record(() -> {
+            AnswerKey answerKey = answerKeyCache.get(record.getPaperId());
+            if (answerKey == null) {
+                return 0;
+            }
+            return answerStorage.grade(answerKey, record);
+        });
     }
 }
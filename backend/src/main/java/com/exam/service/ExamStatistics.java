@@ -0,0 +1,759 @@
+package com.exam.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.exam.cache.AnswerCodes;
+import com.exam.cache.AnswerKey;
+import com.exam.cache.AnswerKeyCache;
+import com.exam.cache.AnswerLayout;
+import com.exam.entity.ExamRecord;
+import com.exam.entity.PaperStat;
+import com.exam.entity.QuestionStat;
+import com.exam.mapper.ExamRecordMapper;
+import com.exam.mapper.PaperStatMapper;
+import com.exam.mapper.QuestionStatMapper;
+import com.exam.mapper.StatEpochMapper;
+import com.exam.util.ThreadFactories;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 考试统计
+ * 评分结果落库后累加内存计数：每道题的作答、答对和各选项次数，每份试卷的交卷数、总分、及格数和得分分布。
+ * 计数为 AtomicLongArray，交卷路径不加锁；定时以增量累加写入 t_question_stat / t_paper_stat；
+ * 看板按主键读取汇总行并叠加本节点尚未落库的增量，与考试记录条数无关。
+ * rebuild 按ID区间并行扫描历史记录重算汇总表：开始时换上一组新的计数（旧计数中的记录都已提交，会被扫描读到），
+ * 重建期间ID不大于扫描上限的评分结果只记下ID（最多 rebuild-late-limit 个），替换汇总表后从数据库补计扫描未读到的；
+ * 重建期间暂停落库，只在替换汇总表时与落库互斥。
+ * 多节点部署时由 t_stat_epoch 协调：同一时间只有一个节点重建，写表时推进纪元；其他节点落库前锁纪元行，
+ * 发现纪元已推进就丢弃此前累积的增量，其他节点在扫描期间评分的记录可能漏计，重建应在没有考试进行时执行。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ExamStatistics {
+
+    public static final int BUCKETS = 10;
+
+    // 题目计数槽位：作答、答对、各选项（AnswerCodes 编码1~6）
+    private static final int ATTEMPTS = 0;
+    private static final int CORRECT = 1;
+    private static final int PICKS = 2;
+    private static final int QUESTION_SLOTS = PICKS + 6;
+    // 试卷计数槽位：交卷数、总得分、及格数、得分分布
+    private static final int SUBMISSIONS = 0;
+    private static final int SCORE_SUM = 1;
+    private static final int PASSED = 2;
+    private static final int BUCKET = 3;
+    private static final int PAPER_SLOTS = BUCKET + BUCKETS;
+    // 补计时每次按主键读取的记录数
+    private static final int RECONCILE_BATCH = 500;
+
+    private final AnswerKeyCache answerKeyCache;
+    private final ExamRecordMapper examRecordMapper;
+    private final QuestionStatMapper questionStatMapper;
+    private final PaperStatMapper paperStatMapper;
+    private final StatEpochMapper statEpochMapper;
+    private final SqlSessionFactory sqlSessionFactory;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${exam.stats.flush-interval-ms:5000}")
+    private long flushIntervalMillis;
+
+    @Value("${exam.stats.pass-percent:60}")
+    private int passPercent;
+
+    @Value("${exam.stats.rebuild-threads:4}")
+    private int rebuildThreads;
+
+    @Value("${exam.stats.rebuild-chunk:5000}")
+    private int rebuildChunk;
+
+    @Value("${exam.stats.rebuild-lease-ms:3600000}")
+    private long rebuildLeaseMillis;
+
+    @Value("${exam.stats.rebuild-late-limit:200000}")
+    private int rebuildLateLimit;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private volatile Counters counters = new Counters(-1);
+    // 最近一次重建扫描读到的记录，供落库时补计撤销边界后才入队的ID
+    private volatile NavigableMap<Long, BitSet> lastScanned;
+    // 落库与替换汇总表互斥
+    private final Object flushLock = new Object();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    // 本节点增量所属的重建纪元，只在 flushLock 内读写；为null时未执行 V10 迁移，重建不与其他节点协调
+    private Long epoch;
+    private TransactionTemplate transactionTemplate;
+    private ScheduledExecutorService flusher;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder paperOnly = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder rowsFlushed = new LongAdder();
+    private final LongAdder rowsDiscarded = new LongAdder();
+    private final LongAdder lateDropped = new LongAdder();
+    private volatile long lastRebuildRecords = -1;
+    private volatile long lastRebuildMillis;
+
+    @PostConstruct
+    public void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            epoch = statEpochMapper.selectEpoch();
+        } catch (RuntimeException e) {
+            log.debug("读取统计重建纪元失败", e);
+        }
+        if (epoch == null) {
+            log.warn("未找到 t_stat_epoch，统计重建不与其他节点协调（需执行 sql/migration/V10__stat_epoch.sql）");
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(
+                r -> ThreadFactories.newThread("exam-stats-flusher", r, virtualThreads));
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.shutdown();
+        flushQuietly();
+    }
+
+    // 记录一次已落库的评分结果；codes 为空时按试卷布局编码JSON作答，无法编码的只计入试卷统计
+    public void record(Long recordId, Long paperId, byte[] codes, String answersJson, int score) {
+        Counters current = counters;
+        long boundary = current.boundary;
+        if (boundary >= 0 && recordId != null && recordId <= boundary) {
+            // 重建扫描范围内，替换汇总表后核对是否已被扫描
+            current.late(recordId);
+            return;
+        }
+        AnswerKey answerKey = answerKey(paperId);
+        if (answerKey != null) {
+            apply(current, answerKey, paperId, codes, answersJson, score);
+        }
+    }
+
+    private AnswerKey answerKey(Long paperId) {
+        try {
+            return answerKeyCache.get(paperId);
+        } catch (RuntimeException e) {
+            // 统计不影响交卷
+            failures.increment();
+            log.warn("考试统计记录失败, paperId={}", paperId, e);
+            return null;
+        }
+    }
+
+    private void apply(Counters target, AnswerKey answerKey, Long paperId, byte[] codes, String answersJson,
+                       int score) {
+        try {
+            addPaper(target.papers.computeIfAbsent(paperId, id -> new AtomicLongArray(PAPER_SLOTS)),
+                    answerKey.getTotalScore(), score);
+            if (codes == null) {
+                codes = answerKey.getLayout().encode(answersJson);
+            }
+            if (codes == null || !answerKey.getLayout().matches(codes)) {
+                paperOnly.increment();
+                return;
+            }
+            answerKey.grade(codes, (questionId, code, correct) -> {
+                AtomicLongArray values = target.questions.computeIfAbsent(questionId,
+                        id -> new AtomicLongArray(QUESTION_SLOTS));
+                values.incrementAndGet(ATTEMPTS);
+                if (correct) {
+                    values.incrementAndGet(CORRECT);
+                }
+                values.incrementAndGet(PICKS + code - 1);
+            });
+            recorded.increment();
+        } catch (RuntimeException e) {
+            // 统计不影响交卷
+            failures.increment();
+            log.warn("考试统计记录失败, paperId={}", paperId, e);
+        }
+    }
+
+    // 试卷概况：交卷数、平均分、及格率、得分分布
+    public Map<String, Object> paperSummary(Long paperId) {
+        long[] values = new long[PAPER_SLOTS];
+        PaperStat row = paperStatMapper.selectById(paperId);
+        if (row != null) {
+            add(values, toArray(row));
+        }
+        addPending(values, counters.papers.get(paperId));
+
+        AnswerKey answerKey = answerKeyCache.get(paperId);
+        long submissions = values[SUBMISSIONS];
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("paperId", paperId);
+        result.put("totalScore", answerKey == null ? null : answerKey.getTotalScore());
+        result.put("submissions", submissions);
+        result.put("averageScore", submissions == 0 ? 0 : (double) values[SCORE_SUM] / submissions);
+        result.put("passPercent", passPercent);
+        result.put("passRate", submissions == 0 ? 0 : (double) values[PASSED] / submissions);
+        List<Map<String, Object>> histogram = new ArrayList<>(BUCKETS);
+        for (int i = 0; i < BUCKETS; i++) {
+            Map<String, Object> bucket = new LinkedHashMap<>();
+            bucket.put("from", i * 100 / BUCKETS);
+            bucket.put("to", (i + 1) * 100 / BUCKETS);
+            bucket.put("count", values[BUCKET + i]);
+            histogram.add(bucket);
+        }
+        result.put("histogram", histogram);
+        return result;
+    }
+
+    // 试卷中每道题的正确率和选项分布，按试卷顺序
+    public List<Map<String, Object>> paperQuestions(Long paperId) {
+        AnswerLayout layout = answerKeyCache.layout(paperId);
+        List<Long> ids = new ArrayList<>(layout.size());
+        for (int i = 0; i < layout.size(); i++) {
+            ids.add(layout.questionId(i));
+        }
+        Map<Long, QuestionStat> rows = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (QuestionStat row : questionStatMapper.selectBatchIds(ids)) {
+                rows.put(row.getQuestionId(), row);
+            }
+        }
+        List<Map<String, Object>> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            result.add(questionSummary(id, rows.get(id)));
+        }
+        return result;
+    }
+
+    public Map<String, Object> question(Long questionId) {
+        return questionSummary(questionId, questionStatMapper.selectById(questionId));
+    }
+
+    // 后台重建汇总表，本节点或其他节点已在重建中时返回false
+    public boolean rebuildAsync() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            if (!claimRebuild()) {
+                rebuilding.set(false);
+                return false;
+            }
+        } catch (RuntimeException e) {
+            rebuilding.set(false);
+            throw e;
+        }
+        ThreadFactories.newThread("exam-stats-rebuild", () -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                log.error("考试统计重建失败", e);
+                releaseRebuild();
+            } finally {
+                rebuilding.set(false);
+            }
+        }, virtualThreads).start();
+        return true;
+    }
+
+    // 占用重建；重建节点宕机时超过 rebuild-lease-ms 后其他节点可以重新占用
+    private boolean claimRebuild() {
+        synchronized (flushLock) {
+            if (epoch == null) {
+                return true;
+            }
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return statEpochMapper.claimRebuild(now, now.minus(Duration.ofMillis(rebuildLeaseMillis))) > 0;
+    }
+
+    private void releaseRebuild() {
+        try {
+            statEpochMapper.releaseRebuild();
+        } catch (RuntimeException e) {
+            log.error("释放统计重建占用失败", e);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Counters current = counters;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pendingQuestions", current.questions.size());
+        stats.put("pendingPapers", current.papers.size());
+        stats.put("lateRecords", current.lateCount.get());
+        stats.put("lateDropped", lateDropped.sum());
+        stats.put("recorded", recorded.sum());
+        stats.put("paperOnly", paperOnly.sum());
+        stats.put("failures", failures.sum());
+        stats.put("flushes", flushes.sum());
+        stats.put("rowsFlushed", rowsFlushed.sum());
+        stats.put("rowsDiscarded", rowsDiscarded.sum());
+        stats.put("rebuilding", rebuilding.get());
+        stats.put("lastRebuildRecords", lastRebuildRecords);
+        stats.put("lastRebuildMillis", lastRebuildMillis);
+        return stats;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("考试统计落库失败", e);
+        }
+    }
+
+    // 没有增量时也检查纪元，空闲节点及时得知其他节点已重建，之后的增量不被误丢；本节点重建期间不落库
+    private void flush() {
+        synchronized (flushLock) {
+            if (rebuilding.get()) {
+                return;
+            }
+            Counters current = counters;
+            if (!current.lateIds.isEmpty()) {
+                reconcile(current, lastScanned);
+            }
+            Map<Long, long[]> questions = drain(current.questions, QUESTION_SLOTS);
+            Map<Long, long[]> papers = drain(current.papers, PAPER_SLOTS);
+            if (epoch == null && questions.isEmpty() && papers.isEmpty()) {
+                return;
+            }
+            boolean written;
+            try {
+                written = Boolean.TRUE.equals(transactionTemplate.execute(status -> write(questions, papers)));
+            } catch (RuntimeException e) {
+                // 写库失败时把增量加回，下次再写
+                restore(current.questions, questions, QUESTION_SLOTS);
+                restore(current.papers, papers, PAPER_SLOTS);
+                throw e;
+            }
+            if (written) {
+                flushes.increment();
+                rowsFlushed.add(questions.size() + papers.size());
+            }
+        }
+    }
+
+    // 在事务内先锁纪元行再累加增量；纪元已被其他节点的重建推进时丢弃增量，返回是否写入
+    private boolean write(Map<Long, long[]> questions, Map<Long, long[]> papers) {
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+            if (epoch != null) {
+                Long current = session.getMapper(StatEpochMapper.class).lockEpoch();
+                if (current != null && !current.equals(epoch)) {
+                    epoch = current;
+                    int rows = questions.size() + papers.size();
+                    if (rows > 0) {
+                        rowsDiscarded.add(rows);
+                        log.info("其他节点已重建考试统计，丢弃重建前累积的 {} 行增量", rows);
+                    }
+                    return false;
+                }
+            }
+            if (questions.isEmpty() && papers.isEmpty()) {
+                return false;
+            }
+            QuestionStatMapper questionMapper = session.getMapper(QuestionStatMapper.class);
+            PaperStatMapper paperMapper = session.getMapper(PaperStatMapper.class);
+            questions.forEach((id, values) -> questionMapper.addDelta(toQuestionStat(id, values)));
+            papers.forEach((id, values) -> paperMapper.addDelta(toPaperStat(id, values)));
+            session.flushStatements();
+            session.commit();
+            return true;
+        }
+    }
+
+    private void rebuild() throws InterruptedException, ExecutionException {
+        long begin = System.currentTimeMillis();
+        // 换上新计数后再查扫描范围：旧计数中的记录都已提交，会被扫描读到，直接丢弃；
+        // 范围确定前评分的记录都先只记ID
+        Counters current = new Counters(Long.MAX_VALUE);
+        Counters previous;
+        synchronized (flushLock) {
+            // 与正在进行的落库互斥，之后的落库看到重建标记不再执行
+            previous = counters;
+            counters = current;
+        }
+        NavigableMap<Long, BitSet> scanned = new TreeMap<>();
+        boolean rebuilt = false;
+        try {
+            rebuilt = rebuildTables(begin, current, scanned);
+        } finally {
+            current.boundary = -1;
+            if (!rebuilt) {
+                // 汇总表未替换，丢弃的增量加回
+                restore(current.questions, drain(previous.questions, QUESTION_SLOTS), QUESTION_SLOTS);
+                restore(current.papers, drain(previous.papers, PAPER_SLOTS), PAPER_SLOTS);
+            }
+            lastScanned = rebuilt ? scanned : null;
+            reconcile(current, lastScanned);
+            int dropped = current.lateCount.get() - rebuildLateLimit;
+            if (dropped > 0) {
+                log.warn("考试统计重建期间评分的记录超过 rebuild-late-limit，{} 条未计入", dropped);
+            }
+        }
+    }
+
+    private boolean rebuildTables(long begin, Counters current, NavigableMap<Long, BitSet> scanned)
+            throws InterruptedException, ExecutionException {
+        QueryWrapper<ExamRecord> rangeQuery = new QueryWrapper<>();
+        rangeQuery.select("MIN(id) AS min_id", "MAX(id) AS max_id");
+        List<Map<String, Object>> range = examRecordMapper.selectMaps(rangeQuery);
+        Map<Long, long[]> questions = new HashMap<>();
+        Map<Long, long[]> papers = new HashMap<>();
+        long records = 0;
+        if (range.isEmpty() || range.get(0) == null || range.get(0).get("min_id") == null) {
+            current.boundary = 0;
+        } else {
+            long minId = ((Number) range.get(0).get("min_id")).longValue();
+            long maxId = ((Number) range.get(0).get("max_id")).longValue();
+            // 之后新建的记录ID都大于 maxId，不在扫描范围内，照常累加
+            current.boundary = maxId;
+            AtomicInteger workerIndex = new AtomicInteger();
+            ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, rebuildThreads),
+                    r -> ThreadFactories.newThread("exam-stats-rebuild-" + workerIndex.getAndIncrement(), r,
+                            virtualThreads));
+            try {
+                List<Future<Partial>> futures = new ArrayList<>();
+                for (long from = minId; from <= maxId; from += rebuildChunk) {
+                    long lower = from;
+                    long upper = Math.min(maxId + 1, from + rebuildChunk);
+                    futures.add(pool.submit(() -> scan(lower, upper)));
+                }
+                for (Future<Partial> future : futures) {
+                    Partial partial = future.get();
+                    scanned.put(partial.from, partial.ids);
+                    merge(questions, partial.questions);
+                    merge(papers, partial.papers);
+                    records += partial.records;
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        // 替换汇总表与推进纪元在同一事务，其他节点之后落库时丢弃重建前的增量
+        synchronized (flushLock) {
+            Long rebuiltEpoch = transactionTemplate.execute(status -> {
+                try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+                    StatEpochMapper epochMapper = session.getMapper(StatEpochMapper.class);
+                    Long locked = epoch == null ? null : epochMapper.lockEpoch();
+                    QuestionStatMapper questionMapper = session.getMapper(QuestionStatMapper.class);
+                    PaperStatMapper paperMapper = session.getMapper(PaperStatMapper.class);
+                    questionMapper.deleteAll();
+                    paperMapper.deleteAll();
+                    questions.forEach((id, values) -> questionMapper.insert(toQuestionStat(id, values)));
+                    papers.forEach((id, values) -> paperMapper.insert(toPaperStat(id, values)));
+                    if (locked != null) {
+                        epochMapper.finishRebuild();
+                    }
+                    session.flushStatements();
+                    session.commit();
+                    return locked == null ? null : locked + 1;
+                }
+            });
+            if (rebuiltEpoch != null) {
+                epoch = rebuiltEpoch;
+            }
+        }
+        lastRebuildRecords = records;
+        lastRebuildMillis = System.currentTimeMillis() - begin;
+        log.info("考试统计重建完成: {} 条记录, {} 道题, {} 份试卷, 耗时 {} ms",
+                records, questions.size(), papers.size(), lastRebuildMillis);
+        return true;
+    }
+
+    // 重建期间只记了ID的评分结果：扫描已读到的不再计入，其余从数据库读出后计入；scanned 为null（重建失败）时全部计入。
+    // 边界已撤销，之后评分的直接累加；撤销前读到旧边界、在此之后才入队的ID由下次落库补计
+    private void reconcile(Counters current, NavigableMap<Long, BitSet> scanned) {
+        int replayed = 0;
+        List<Long> batch = new ArrayList<>(RECONCILE_BATCH);
+        Long recordId;
+        while (true) {
+            while (batch.size() < RECONCILE_BATCH && (recordId = current.lateIds.poll()) != null) {
+                if (scanned == null || !wasScanned(scanned, recordId)) {
+                    batch.add(recordId);
+                }
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+            try {
+                replayed += replay(current, batch);
+            } catch (RuntimeException e) {
+                failures.add(batch.size());
+                log.error("考试统计补计重建期间的 {} 条评分结果失败", batch.size(), e);
+            }
+            batch.clear();
+        }
+        if (replayed > 0) {
+            log.info("考试统计重建期间评分、未被扫描到的 {} 条记录已计入", replayed);
+        }
+    }
+
+    private int replay(Counters current, List<Long> ids) {
+        LambdaQueryWrapper<ExamRecord> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(ExamRecord::getId, ExamRecord::getPaperId, ExamRecord::getAnswers, ExamRecord::getAnswerCodes,
+                ExamRecord::getScore);
+        wrapper.in(ExamRecord::getId, ids);
+        wrapper.eq(ExamRecord::getStatus, 1);
+        int replayed = 0;
+        for (ExamRecord record : examRecordMapper.selectList(wrapper)) {
+            AnswerKey answerKey = answerKey(record.getPaperId());
+            if (answerKey != null) {
+                apply(current, answerKey, record.getPaperId(), record.getAnswerCodes(), record.getAnswers(),
+                        record.getScore() == null ? 0 : record.getScore());
+                replayed++;
+            }
+        }
+        return replayed;
+    }
+
+    private static boolean wasScanned(NavigableMap<Long, BitSet> scanned, long recordId) {
+        Map.Entry<Long, BitSet> chunk = scanned.floorEntry(recordId);
+        return chunk != null && recordId - chunk.getKey() < Integer.MAX_VALUE
+                && chunk.getValue().get((int) (recordId - chunk.getKey()));
+    }
+
+    // 扫描 [from, to) 区间内已评分的考试记录
+    private Partial scan(long from, long to) {
+        LambdaQueryWrapper<ExamRecord> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(ExamRecord::getId, ExamRecord::getPaperId, ExamRecord::getAnswers, ExamRecord::getAnswerCodes,
+                ExamRecord::getScore);
+        wrapper.ge(ExamRecord::getId, from);
+        wrapper.lt(ExamRecord::getId, to);
+        wrapper.eq(ExamRecord::getStatus, 1);
+        Partial partial = new Partial(from);
+        for (ExamRecord record : examRecordMapper.selectList(wrapper)) {
+            partial.ids.set((int) (record.getId() - from));
+            AnswerKey answerKey = answerKeyCache.get(record.getPaperId());
+            if (answerKey == null) {
+                continue;
+            }
+            long[] paper = partial.papers.computeIfAbsent(record.getPaperId(), id -> new long[PAPER_SLOTS]);
+            int score = record.getScore() == null ? 0 : record.getScore();
+            paper[SUBMISSIONS]++;
+            paper[SCORE_SUM] += score;
+            paper[PASSED] += passed(answerKey.getTotalScore(), score) ? 1 : 0;
+            paper[BUCKET + bucket(answerKey.getTotalScore(), score)]++;
+            partial.records++;
+
+            byte[] codes = record.getAnswerCodes() != null ? record.getAnswerCodes()
+                    : answerKey.getLayout().encode(record.getAnswers());
+            if (codes == null || !answerKey.getLayout().matches(codes)) {
+                continue;
+            }
+            answerKey.grade(codes, (questionId, code, correct) -> {
+                long[] question = partial.questions.computeIfAbsent(questionId, id -> new long[QUESTION_SLOTS]);
+                question[ATTEMPTS]++;
+                question[CORRECT] += correct ? 1 : 0;
+                question[PICKS + code - 1]++;
+            });
+        }
+        return partial;
+    }
+
+    private void addPaper(AtomicLongArray counters, int totalScore, int score) {
+        counters.incrementAndGet(SUBMISSIONS);
+        counters.addAndGet(SCORE_SUM, score);
+        if (passed(totalScore, score)) {
+            counters.incrementAndGet(PASSED);
+        }
+        counters.incrementAndGet(BUCKET + bucket(totalScore, score));
+    }
+
+    private boolean passed(int totalScore, int score) {
+        return totalScore > 0 && score * 100L >= (long) totalScore * passPercent;
+    }
+
+    private static int bucket(int totalScore, int score) {
+        if (totalScore <= 0 || score <= 0) {
+            return 0;
+        }
+        return (int) Math.min(BUCKETS - 1, (long) score * BUCKETS / totalScore);
+    }
+
+    private Map<String, Object> questionSummary(Long questionId, QuestionStat row) {
+        long[] values = new long[QUESTION_SLOTS];
+        if (row != null) {
+            add(values, toArray(row));
+        }
+        addPending(values, counters.questions.get(questionId));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("questionId", questionId);
+        result.put("attempts", values[ATTEMPTS]);
+        result.put("correct", values[CORRECT]);
+        result.put("correctRate", values[ATTEMPTS] == 0 ? 0 : (double) values[CORRECT] / values[ATTEMPTS]);
+        Map<String, Long> picks = new LinkedHashMap<>();
+        for (int code = 1; code <= 6; code++) {
+            if (values[PICKS + code - 1] > 0) {
+                picks.put(AnswerCodes.symbol(code), values[PICKS + code - 1]);
+            }
+        }
+        result.put("picks", picks);
+        return result;
+    }
+
+    private static Map<Long, long[]> drain(Map<Long, AtomicLongArray> deltas, int slots) {
+        Map<Long, long[]> drained = new HashMap<>();
+        for (Map.Entry<Long, AtomicLongArray> entry : deltas.entrySet()) {
+            long[] values = new long[slots];
+            boolean changed = false;
+            for (int i = 0; i < slots; i++) {
+                values[i] = entry.getValue().getAndSet(i, 0);
+                changed |= values[i] != 0;
+            }
+            if (changed) {
+                drained.put(entry.getKey(), values);
+            }
+        }
+        return drained;
+    }
+
+    private static void restore(Map<Long, AtomicLongArray> deltas, Map<Long, long[]> drained, int slots) {
+        drained.forEach((id, values) -> {
+            AtomicLongArray counters = deltas.computeIfAbsent(id, key -> new AtomicLongArray(slots));
+            for (int i = 0; i < slots; i++) {
+                counters.addAndGet(i, values[i]);
+            }
+        });
+    }
+
+    private static void merge(Map<Long, long[]> target, Map<Long, long[]> source) {
+        source.forEach((id, values) -> target.merge(id, values, (a, b) -> {
+            add(a, b);
+            return a;
+        }));
+    }
+
+    private static void add(long[] target, long[] values) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] += values[i];
+        }
+    }
+
+    private static void addPending(long[] target, AtomicLongArray pending) {
+        if (pending != null) {
+            for (int i = 0; i < target.length; i++) {
+                target[i] += pending.get(i);
+            }
+        }
+    }
+
+    private static QuestionStat toQuestionStat(Long questionId, long[] values) {
+        QuestionStat stat = new QuestionStat();
+        stat.setQuestionId(questionId);
+        stat.setAttempts(values[ATTEMPTS]);
+        stat.setCorrect(values[CORRECT]);
+        stat.setPickA(values[PICKS]);
+        stat.setPickB(values[PICKS + 1]);
+        stat.setPickC(values[PICKS + 2]);
+        stat.setPickD(values[PICKS + 3]);
+        stat.setPickT(values[PICKS + 4]);
+        stat.setPickF(values[PICKS + 5]);
+        return stat;
+    }
+
+    private static long[] toArray(QuestionStat stat) {
+        return new long[]{value(stat.getAttempts()), value(stat.getCorrect()), value(stat.getPickA()),
+                value(stat.getPickB()), value(stat.getPickC()), value(stat.getPickD()), value(stat.getPickT()),
+                value(stat.getPickF())};
+    }
+
+    private static PaperStat toPaperStat(Long paperId, long[] values) {
+        PaperStat stat = new PaperStat();
+        stat.setPaperId(paperId);
+        stat.setSubmissions(values[SUBMISSIONS]);
+        stat.setScoreSum(values[SCORE_SUM]);
+        stat.setPassed(values[PASSED]);
+        stat.setBucket0(values[BUCKET]);
+        stat.setBucket1(values[BUCKET + 1]);
+        stat.setBucket2(values[BUCKET + 2]);
+        stat.setBucket3(values[BUCKET + 3]);
+        stat.setBucket4(values[BUCKET + 4]);
+        stat.setBucket5(values[BUCKET + 5]);
+        stat.setBucket6(values[BUCKET + 6]);
+        stat.setBucket7(values[BUCKET + 7]);
+        stat.setBucket8(values[BUCKET + 8]);
+        stat.setBucket9(values[BUCKET + 9]);
+        return stat;
+    }
+
+    private static long[] toArray(PaperStat stat) {
+        return new long[]{value(stat.getSubmissions()), value(stat.getScoreSum()), value(stat.getPassed()),
+                value(stat.getBucket0()), value(stat.getBucket1()), value(stat.getBucket2()), value(stat.getBucket3()),
+                value(stat.getBucket4()), value(stat.getBucket5()), value(stat.getBucket6()), value(stat.getBucket7()),
+                value(stat.getBucket8()), value(stat.getBucket9())};
+    }
+
+    private static long value(Long value) {
+        return value == null ? 0 : value;
+    }
+
+    private static final class Partial {
+        private final long from;
+        // 扫描读到的记录，按 id - from 置位
+        private final BitSet ids = new BitSet();
+        private final Map<Long, long[]> questions = new HashMap<>();
+        private final Map<Long, long[]> papers = new HashMap<>();
+        private long records;
+
+        private Partial(long from) {
+            this.from = from;
+        }
+    }
+
+    // 一组未落库的增量；重建时整体换新。boundary 为重建扫描范围的最大ID，-1 为不在重建
+    private final class Counters {
+        private final Map<Long, AtomicLongArray> questions = new ConcurrentHashMap<>();
+        private final Map<Long, AtomicLongArray> papers = new ConcurrentHashMap<>();
+        private final Queue<Long> lateIds = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger lateCount = new AtomicInteger();
+        private volatile long boundary;
+
+        private Counters(long boundary) {
+            this.boundary = boundary;
+        }
+
+        private void late(long recordId) {
+            if (lateCount.incrementAndGet() <= rebuildLateLimit) {
+                lateIds.add(recordId);
+            } else {
+                lateDropped.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.exam.service;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.exam.cache.QuestionCache;
+import com.exam.entity.PaperQuestion;
+import com.exam.entity.Question;
+import com.exam.mapper.PaperQuestionMapper;
+import com.exam.util.IdListUtil;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class PaperQuestionService extends ServiceImpl<PaperQuestionMapper, PaperQuestion> {
+    
+    private final QuestionCache questionCache;
+    private final PlatformTransactionManager transactionManager;
+    
+    private TransactionTemplate transactionTemplate;
+    
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    // 试卷题目ID，按题目顺序
+    public long[] getQuestionIds(Long paperId) {
+        List<PaperQuestion> rows = this.getBaseMapper().selectByPaperId(paperId);
+        long[] ids = new long[rows.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = rows.get(i).getQuestionId();
+        }
+        return ids;
+    }
+    
+    // 批量获取多份试卷的题目ID列表（逗号分隔），用于列表展示
+    public Map<Long, String> getQuestionIdStrings(Collection<Long> paperIds) {
+        Map<Long, String> result = new HashMap<>();
+        if (paperIds.isEmpty()) {
+            return result;
+        }
+        Map<Long, StringBuilder> builders = new HashMap<>();
+        for (PaperQuestion row : this.getBaseMapper().selectByPaperIds(paperIds)) {
+            StringBuilder sb = builders.computeIfAbsent(row.getPaperId(), id -> new StringBuilder());
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(row.getQuestionId());
+        }
+        builders.forEach((id, sb) -> result.put(id, sb.toString()));
+        return result;
+    }
+    
+    // 按顺序返回试卷题目，设置了本卷分值的题目返回副本
+    public List<Question> getPaperQuestions(Long paperId) {
+        List<PaperQuestion> rows = this.getBaseMapper().selectByPaperId(paperId);
+        long[] ids = new long[rows.size()];
+        Map<Long, Integer> overrides = null;
+        for (int i = 0; i < ids.length; i++) {
+            PaperQuestion row = rows.get(i);
+            ids[i] = row.getQuestionId();
+            if (row.getScoreOverride() != null) {
+                if (overrides == null) {
+                    overrides = new HashMap<>();
+                }
+                overrides.put(row.getQuestionId(), row.getScoreOverride());
+            }
+        }
+        List<Question> questions = questionCache.getAll(ids);
+        if (overrides == null) {
+            return questions;
+        }
+        List<Question> result = new ArrayList<>(questions.size());
+        for (Question question : questions) {
+            Integer score = overrides.get(question.getId());
+            if (score != null) {
+                Question copy = new Question();
+                BeanUtils.copyProperties(question, copy);
+                copy.setScore(score);
+                question = copy;
+            }
+            result.add(question);
+        }
+        return result;
+    }
+    
+    // 用新的题目列表替换试卷原有题目
+    @Transactional
+    public void replaceQuestions(Long paperId, long[] questionIds) {
+        this.getBaseMapper().deleteByPaperId(paperId);
+        if (questionIds.length == 0) {
+            return;
+        }
+        List<PaperQuestion> rows = new ArrayList<>(questionIds.length);
+        for (int i = 0; i < questionIds.length; i++) {
+            PaperQuestion row = new PaperQuestion();
+            row.setPaperId(paperId);
+            row.setQuestionId(questionIds[i]);
+            row.setSeq(i);
+            rows.add(row);
+        }
+        this.getBaseMapper().insertBatch(rows);
+    }
+    
+    public List<Long> getPaperIdsByQuestionId(Long questionId) {
+        return this.getBaseMapper().selectPaperIdsByQuestionId(questionId);
+    }
+    
+    // 将旧的 t_paper.question_ids 列拆分写入关联表，返回迁移的试卷数
+    // 内部调用不经过代理，@Transactional 不生效，每份试卷的删除和插入放在一个显式事务中
+    public int migrateLegacyQuestionIds() {
+        int migrated = 0;
+        for (Map<String, Object> row : this.getBaseMapper().selectUnmigratedPapers()) {
+            Long paperId = ((Number) row.get("paperId")).longValue();
+            long[] questionIds = IdListUtil.parse((String) row.get("questionIds"));
+            transactionTemplate.executeWithoutResult(status -> replaceQuestions(paperId, questionIds));
+            migrated++;
+        }
+        return migrated;
+    }
+}
@@ -3,14 +3,28 @@ package com.exam.service;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.exam.cache.AnswerKeyCache;
+import com.exam.cache.AnswerLayout;
+import com.exam.cache.CacheChangeLog;
+import com.exam.cache.PaperPayloadCache;
+import com.exam.config.ExamMetrics;
 import com.exam.entity.Paper;
 import com.exam.entity.Question;
 import com.exam.mapper.PaperMapper;
+import com.exam.util.IdListUtil;
+import com.exam.util.KeysetPage;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.Arrays;
+import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -18,39 +32,147 @@ import java.util.stream.Collectors;
 public class PaperService extends ServiceImpl<PaperMapper, Paper> {
     
     private final QuestionService questionService;
+    private final PaperQuestionService paperQuestionService;
+    private final AnswerKeyCache answerKeyCache;
+    private final PaperPayloadCache paperPayloadCache;
+    private final AnswerStorage answerStorage;
+    private final ExamLeaderboard examLeaderboard;
+    private final CacheChangeLog cacheChangeLog;
+    private final ExamMetrics examMetrics;
+    private final PlatformTransactionManager transactionManager;
     
+    private TransactionTemplate transactionTemplate;
+    
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    @Transactional(readOnly = true)
     public Page<Paper> getPaperPage(Integer page, Integer limit, String title) {
         Page<Paper> pageParam = new Page<>(page, limit);
+        LambdaQueryWrapper<Paper> wrapper = paperFilter(title);
+        wrapper.orderByDesc(Paper::getCreateTime);
+        Page<Paper> result = this.page(pageParam, wrapper);
+        fillQuestionIds(result.getRecords());
+        return result;
+    }
+    
+    // 游标分页，after 为上一页返回的 nextCursor
+    @Transactional(readOnly = true)
+    public KeysetPage<Paper> getPaperKeysetPage(String after, Integer limit, String title, boolean withTotal) {
+        KeysetPage<Paper> result = KeysetPage.query(this, paperFilter(title), Paper::getCreateTime, Paper::getId,
+                after, limit, withTotal);
+        fillQuestionIds(result.getRecords());
+        return result;
+    }
+    
+    private LambdaQueryWrapper<Paper> paperFilter(String title) {
         LambdaQueryWrapper<Paper> wrapper = new LambdaQueryWrapper<>();
         if (title != null && !title.isEmpty()) {
             wrapper.like(Paper::getTitle, title);
         }
-        wrapper.orderByDesc(Paper::getCreateTime);
-        return this.page(pageParam, wrapper);
+        return wrapper;
+    }
+    
+    @Override
+    public Paper getById(Serializable id) {
+        Paper paper = super.getById(id);
+        if (paper != null) {
+            paper.setQuestionIds(IdListUtil.join(paperQuestionService.getQuestionIds(paper.getId())));
+        }
+        return paper;
     }
     
+    @Transactional
     public void addPaper(Paper paper) {
+        long[] questionIds = IdListUtil.parse(paper.getQuestionIds());
         // 计算总分
         List<Question> questions = questionService.getQuestionsByIds(paper.getQuestionIds());
         int totalScore = questions.stream().mapToInt(Question::getScore).sum();
         paper.setTotalScore(totalScore);
         this.save(paper);
+        paperQuestionService.replaceQuestions(paper.getId(), questionIds);
+        cacheChangeLog.paper(paper.getId());
     }
     
     public void updatePaper(Paper paper) {
-        if (paper.getQuestionIds() != null && !paper.getQuestionIds().isEmpty()) {
-            List<Question> questions = questionService.getQuestionsByIds(paper.getQuestionIds());
-            int totalScore = questions.stream().mapToInt(Question::getScore).sum();
-            paper.setTotalScore(totalScore);
+        long[] questionIds = paper.getQuestionIds() != null && !paper.getQuestionIds().isEmpty()
+                ? IdListUtil.parse(paper.getQuestionIds()) : null;
+        // 二进制作答按题目位置编码，布局变化前先按旧布局分批展开为JSON（每批独立提交，不放在试卷更新事务中）
+        if (questionIds != null && !answerKeyCache.layout(paper.getId()).sameAs(questionIds)) {
+            answerStorage.expand(paper.getId());
         }
-        this.updateById(paper);
+        transactionTemplate.executeWithoutResult(status -> {
+            if (questionIds != null) {
+                List<Question> questions = questionService.getQuestionsByIds(paper.getQuestionIds());
+                int totalScore = questions.stream().mapToInt(Question::getScore).sum();
+                paper.setTotalScore(totalScore);
+                paperQuestionService.replaceQuestions(paper.getId(), questionIds);
+            }
+            this.updateById(paper);
+            cacheChangeLog.paper(paper.getId());
+            // 提交后再失效，避免提交前的并发请求把旧数据重新加载进缓存
+            Long paperId = paper.getId();
+            afterCommit(() -> refreshPaper(paperId));
+        });
     }
     
+    public void deletePaper(Long id) {
+        this.removeById(id);
+        answerKeyCache.invalidate(id);
+        paperPayloadCache.invalidate(id);
+        examLeaderboard.invalidate(id);
+        cacheChangeLog.paper(id);
+    }
+    
+    // 其他节点（或本节点事务提交前）修改或删除了试卷
+    public void refreshPaper(Long id) {
+        AnswerLayout previous = answerKeyCache.invalidate(id);
+        paperPayloadCache.invalidate(id);
+        answerStorage.relayout(id, previous);
+        if (super.getById(id) == null) {
+            examLeaderboard.invalidate(id);
+        }
+    }
+    
+    // 试卷不存在时返回null
     public List<Question> getPaperQuestions(Long paperId) {
-        Paper paper = this.getById(paperId);
-        if (paper == null) {
-            return List.of();
+        return examMetrics.paperQuestions().record(() -> {
+            Paper paper = super.getById(paperId);
+            if (paper == null) {
+                return null;
+            }
+            return paperQuestionService.getPaperQuestions(paperId);
+        });
+    }
+    
+    // 使用某道题目的试卷
+    public List<Long> getPaperIdsByQuestion(Long questionId) {
+        return paperQuestionService.getPaperIdsByQuestionId(questionId);
+    }
+    
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+    
+    private void fillQuestionIds(List<Paper> papers) {
+        if (papers.isEmpty()) {
+            return;
+        }
+        Map<Long, String> questionIds = paperQuestionService.getQuestionIdStrings(
+                papers.stream().map(Paper::getId).collect(Collectors.toList()));
+        for (Paper paper : papers) {
+            paper.setQuestionIds(questionIds.getOrDefault(paper.getId(), ""));
         }
-        return questionService.getQuestionsByIds(paper.getQuestionIds());
     }
 }
@@ -0,0 +1,110 @@
+package com.exam.service;
+
+import com.exam.config.ExamMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 密码哈希线程池
+ * bcrypt 计算在固定大小（默认等于CPU核数）的专用线程池中执行，不占用请求线程；
+ * 排队数达到上限时立即拒绝（RejectedExecutionException），由调用方返回503，避免登录高峰拖垮其他接口。
+ * bcrypt 是纯CPU计算，虚拟线程模式下也使用平台线程。
+ */
+@Component
+@RequiredArgsConstructor
+public class PasswordHashPool {
+
+    private final ExamMetrics examMetrics;
+
+    @Value("${exam.login.threads:0}")
+    private int threads;
+
+    @Value("${exam.login.queue-capacity:64}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    private final LongAdder tasks = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final LongAccumulator maxQueueWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxHashNanos = new LongAccumulator(Math::max, 0);
+
+    @PostConstruct
+    public void start() {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "password-hash-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    // 提交哈希任务；线程池饱和时抛出 RejectedExecutionException
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        long submitted = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long started = System.nanoTime();
+                record(queueWaitNanos, maxQueueWaitNanos, started - submitted);
+                examMetrics.loginQueueWait().record(started - submitted, TimeUnit.NANOSECONDS);
+                try {
+                    return task.get();
+                } finally {
+                    long hash = System.nanoTime() - started;
+                    record(hashNanos, maxHashNanos, hash);
+                    examMetrics.loginHash().record(hash, TimeUnit.NANOSECONDS);
+                    tasks.increment();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            examMetrics.loginRejected();
+            throw e;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long count = tasks.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("threads", executor.getMaximumPoolSize());
+        stats.put("active", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("tasks", count);
+        stats.put("rejected", rejected.sum());
+        stats.put("avgQueueWaitMs", count == 0 ? 0.0 : queueWaitNanos.sum() / 1e6 / count);
+        stats.put("maxQueueWaitMs", maxQueueWaitNanos.get() / 1e6);
+        stats.put("avgHashMs", count == 0 ? 0.0 : hashNanos.sum() / 1e6 / count);
+        stats.put("maxHashMs", maxHashNanos.get() / 1e6);
+        return stats;
+    }
+
+    private static void record(LongAdder total, LongAccumulator max, long nanos) {
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+}
@@ -0,0 +1,255 @@
+package com.exam.service;
+
+import com.exam.entity.Question;
+import com.exam.util.CsvReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 题目批量导入
+ * 逐行解析上传的CSV或JSON Lines文件，逐行校验后按批写入；题库缓存和模块目录在导入结束后统一刷新一次，
+ * 读取中途出错（上传中断等）时已写入的批次同样会刷新。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class QuestionImporter {
+
+    // 返回的错误明细上限，超过后只计数
+    private static final int MAX_ERRORS = 1000;
+
+    private final QuestionService questionService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${exam.import.batch-size:500}")
+    private int defaultBatchSize;
+
+    public Map<String, Object> importCsv(InputStream input, Integer batchSize, Long createBy) throws IOException {
+        ImportContext context = new ImportContext(batchSize, createBy);
+        try {
+            CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
+            List<String> header = reader.next();
+            if (header == null) {
+                return context.finish();
+            }
+            Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                // 去掉可能存在的BOM
+                columns.put(header.get(i).replace("\uFEFF", "").trim(), i);
+            }
+            if (!columns.containsKey("content") || !columns.containsKey("type") || !columns.containsKey("answer")) {
+                throw new RuntimeException("CSV表头必须包含 content、type、answer 列");
+            }
+
+            int row = 1;
+            List<String> fields;
+            while ((fields = reader.next()) != null) {
+                row++;
+                if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                    continue;
+                }
+                Question question = new Question();
+                question.setContent(column(fields, columns, "content"));
+                question.setOptionA(column(fields, columns, "optionA"));
+                question.setOptionB(column(fields, columns, "optionB"));
+                question.setOptionC(column(fields, columns, "optionC"));
+                question.setOptionD(column(fields, columns, "optionD"));
+                question.setAnswer(column(fields, columns, "answer"));
+                question.setAnalysis(column(fields, columns, "analysis"));
+                try {
+                    question.setType(parseInteger(column(fields, columns, "type")));
+                    question.setScore(parseInteger(column(fields, columns, "score")));
+                } catch (NumberFormatException e) {
+                    context.error(row, "type或score不是整数");
+                    continue;
+                }
+                context.accept(row, question);
+            }
+            return context.finish();
+        } finally {
+            context.close();
+        }
+    }
+
+    public Map<String, Object> importJsonLines(InputStream input, Integer batchSize, Long createBy) throws IOException {
+        ImportContext context = new ImportContext(batchSize, createBy);
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            int row = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                row++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                Question question;
+                try {
+                    question = objectMapper.readValue(line, Question.class);
+                } catch (IOException e) {
+                    context.error(row, "JSON格式错误");
+                    continue;
+                }
+                context.accept(row, question);
+            }
+            return context.finish();
+        } finally {
+            context.close();
+        }
+    }
+
+    // 校验并规范化，返回错误信息，合法时返回null
+    static String validate(Question question) {
+        if (question.getContent() == null || question.getContent().isBlank()) {
+            return "题目内容不能为空";
+        }
+        if (question.getType() == null || (question.getType() != 1 && question.getType() != 2)) {
+            return "题目类型只能是1（选择题）或2（判断题）";
+        }
+        if (isBlank(question.getOptionA()) || isBlank(question.getOptionB())) {
+            return "选项A、B不能为空";
+        }
+        String answer = question.getAnswer() == null ? "" : question.getAnswer().trim().toUpperCase();
+        if (answer.length() != 1) {
+            return "答案必须是单个选项字母";
+        }
+        char option = answer.charAt(0);
+        String maxOption = question.getType() == 2 ? "B" : isBlank(question.getOptionD())
+                ? (isBlank(question.getOptionC()) ? "B" : "C") : "D";
+        if (option < 'A' || option > maxOption.charAt(0)) {
+            return "答案 " + answer + " 不是有效选项";
+        }
+        question.setAnswer(answer);
+        if (question.getScore() == null) {
+            question.setScore(5);
+        } else if (question.getScore() <= 0 || question.getScore() > 100) {
+            return "分值必须在1到100之间";
+        }
+        return null;
+    }
+
+    private static String column(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Integer parseInteger(String value) {
+        return value == null ? null : Integer.valueOf(value);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private class ImportContext {
+        private final int batchSize;
+        private final Long createBy;
+        private final List<Question> batch = new ArrayList<>();
+        private final List<Integer> batchRows = new ArrayList<>();
+        private final List<Map<String, Object>> errors = new ArrayList<>();
+        private int total;
+        private int imported;
+        private int failed;
+        private boolean refreshed;
+
+        ImportContext(Integer batchSize, Long createBy) {
+            this.batchSize = batchSize == null || batchSize <= 0 ? defaultBatchSize : batchSize;
+            this.createBy = createBy;
+        }
+
+        void accept(int row, Question question) {
+            String message = validate(question);
+            if (message != null) {
+                error(row, message);
+                return;
+            }
+            total++;
+            question.setId(null);
+            if (question.getCreateBy() == null) {
+                question.setCreateBy(createBy);
+            }
+            batch.add(question);
+            batchRows.add(row);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        // 解析或校验失败的行
+        void error(int row, String message) {
+            total++;
+            record(row, message);
+        }
+
+        private void record(int row, String message) {
+            failed++;
+            if (errors.size() < MAX_ERRORS) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("row", row);
+                error.put("message", message);
+                errors.add(error);
+            }
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                questionService.saveBatch(batch, batchSize);
+                imported += batch.size();
+            } catch (Exception e) {
+                log.warn("题目批量写入失败, rows {}-{}", batchRows.get(0), batchRows.get(batchRows.size() - 1), e);
+                for (Integer row : batchRows) {
+                    record(row, "写入数据库失败");
+                }
+            }
+            batch.clear();
+            batchRows.clear();
+        }
+
+        Map<String, Object> finish() {
+            flush();
+            refresh();
+            Map<String, Object> result = new HashMap<>();
+            result.put("total", total);
+            result.put("imported", imported);
+            result.put("failed", failed);
+            result.put("errors", errors);
+            return result;
+        }
+
+        // 读取中途出错时未走到 finish，已写入的批次也要让缓存、抽题和搜索索引可见；尚未写入的批次丢弃
+        void close() {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                // 不掩盖读取时的原始异常
+                log.error("题目导入中断后刷新缓存失败, imported {}", imported, e);
+            }
+        }
+
+        private void refresh() {
+            if (imported > 0 && !refreshed) {
+                refreshed = true;
+                questionService.refreshAfterImport();
+            }
+        }
+    }
+}
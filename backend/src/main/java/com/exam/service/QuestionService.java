@@ -1,15 +1,29 @@
 package com.exam.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.exam.cache.AnswerKeyCache;
+import com.exam.cache.CacheChangeLog;
+import com.exam.cache.ModuleCatalog;
+import com.exam.cache.PaperPayloadCache;
+import com.exam.cache.QuestionCache;
+import com.exam.cache.QuestionSampler;
+import com.exam.cache.QuestionSearchIndex;
+import com.exam.config.ExamMetrics;
+import com.exam.dto.QuestionSummary;
 import com.exam.entity.Question;
 import com.exam.mapper.QuestionMapper;
+import com.exam.util.IdListUtil;
+import com.exam.util.KeysetPage;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -17,69 +31,160 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class QuestionService extends ServiceImpl<QuestionMapper, Question> {
     
-    public Page<Question> getQuestionPage(Integer page, Integer limit, Integer type, String keyword) {
+    // 列表默认只查摘要列（题干截取前 CONTENT_PREVIEW 个字符，不读选项和解析），detail 为 true 时查整行
+    private static final String[] SUMMARY_COLUMNS = {"id", "type", "LEFT(content, " + QuestionSummary.CONTENT_PREVIEW
+            + ") AS content", "answer", "score", "create_by", "create_time", "update_time"};
+    
+    private final QuestionCache questionCache;
+    private final AnswerKeyCache answerKeyCache;
+    private final QuestionSampler questionSampler;
+    private final ModuleCatalog moduleCatalog;
+    private final QuestionSearchIndex questionSearchIndex;
+    private final PaperPayloadCache paperPayloadCache;
+    private final CacheChangeLog cacheChangeLog;
+    private final ExamMetrics examMetrics;
+    
+    @Transactional(readOnly = true)
+    public Page<Question> getQuestionPage(Integer page, Integer limit, Integer type, String keyword, boolean detail) {
+        if (keyword != null && !keyword.isBlank()) {
+            return searchQuestions(page, limit, type, keyword, detail);
+        }
         Page<Question> pageParam = new Page<>(page, limit);
-        LambdaQueryWrapper<Question> wrapper = new LambdaQueryWrapper<>();
+        LambdaQueryWrapper<Question> wrapper = questionFilter(type, detail);
+        wrapper.orderByDesc(Question::getCreateTime);
+        return this.page(pageParam, wrapper);
+    }
+    
+    // 关键词搜索走内存倒排索引，按相关度排序后分页，再按主键取题
+    private Page<Question> searchQuestions(Integer page, Integer limit, Integer type, String keyword, boolean detail) {
+        long[] ids = questionSearchIndex.search(keyword, type);
+        int size = Math.max(limit, 1);
+        int from = (int) Math.min((long) (Math.max(page, 1) - 1) * size, ids.length);
+        int to = Math.min(from + size, ids.length);
+        Page<Question> result = new Page<>(page, size, ids.length);
+        result.setRecords(loadQuestions(Arrays.copyOfRange(ids, from, to), detail));
+        return result;
+    }
+    
+    // 游标分页，after 为上一页返回的 nextCursor；有关键词时在内存中的搜索结果上翻页，只取这一页的题目
+    @Transactional(readOnly = true)
+    public KeysetPage<Question> getQuestionKeysetPage(String after, Integer limit, Integer type, String keyword,
+                                                      boolean withTotal, boolean detail) {
+        if (keyword != null && !keyword.isBlank()) {
+            return KeysetPage.slice(questionSearchIndex.search(keyword, type), after, limit, withTotal,
+                    ids -> loadQuestions(ids, detail), Question::getCreateTime, Question::getId);
+        }
+        return KeysetPage.query(this, questionFilter(type, detail), Question::getCreateTime, Question::getId,
+                after, limit, withTotal);
+    }
+    
+    private LambdaQueryWrapper<Question> questionFilter(Integer type, boolean detail) {
+        LambdaQueryWrapper<Question> wrapper = detail ? new LambdaQueryWrapper<>()
+                : new QueryWrapper<Question>().select(SUMMARY_COLUMNS).lambda();
         if (type != null) {
             wrapper.eq(Question::getType, type);
         }
-        if (keyword != null && !keyword.isEmpty()) {
-            wrapper.like(Question::getContent, keyword);
+        return wrapper;
+    }
+    
+    // 从快照按顺序取题；detail 为 false 时与 SUMMARY_COLUMNS 一致，只保留摘要字段
+    private List<Question> loadQuestions(long[] ids, boolean detail) {
+        List<Question> questions = questionCache.getAll(ids);
+        if (detail) {
+            return questions;
         }
-        wrapper.orderByDesc(Question::getCreateTime);
-        return this.page(pageParam, wrapper);
+        List<Question> summaries = new ArrayList<>(questions.size());
+        for (Question question : questions) {
+            QuestionSummary summary = QuestionSummary.from(question);
+            Question row = new Question();
+            row.setId(summary.getId());
+            row.setType(summary.getType());
+            row.setContent(summary.getContent());
+            row.setAnswer(summary.getAnswer());
+            row.setScore(summary.getScore());
+            row.setCreateBy(summary.getCreateBy());
+            row.setCreateTime(summary.getCreateTime());
+            row.setUpdateTime(summary.getUpdateTime());
+            summaries.add(row);
+        }
+        return summaries;
     }
     
-    public List<Question> getRandomQuestions(Integer type, Integer count) {
-        LambdaQueryWrapper<Question> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(Question::getType, type);
-        wrapper.last("ORDER BY RAND() LIMIT " + count);
-        return this.list(wrapper);
+    // 批量导入完成后统一刷新题库快照（模块目录、搜索索引等随之重建），并通知其他节点
+    public void refreshAfterImport() {
+        reloadCaches();
+        cacheChangeLog.allQuestions();
+    }
+    
+    public void reloadCaches() {
+        questionCache.reload();
     }
     
+    // 其他节点（或本节点事务提交前）修改了题目：按数据库当前内容刷新快照和依赖该题的缓存，派生索引随快照变更维护
+    public void refreshQuestion(Long id) {
+        if (questionCache.isLoaded()) {
+            Question after = this.getBaseMapper().selectById(id);
+            if (after == null) {
+                questionCache.evict(id);
+            } else if (!after.equals(questionCache.peek(id))) {
+                questionCache.put(after);
+            }
+        }
+        answerKeyCache.invalidateQuestion(id);
+        paperPayloadCache.invalidateQuestion(id);
+    }
+    
+    // 内存抽样后按主键取题，seed非空时结果可复现
+    public List<Question> getRandomQuestions(Integer type, Integer count, Long seed) {
+        return examMetrics.randomQuestions(false)
+                .record(() -> questionCache.getAll(questionSampler.sampleByType(type, count, seed)));
+    }
+    
+    // 按ID列表的顺序返回题目，走内存快照
     public List<Question> getQuestionsByIds(String questionIds) {
-        if (questionIds == null || questionIds.isEmpty()) {
-            return List.of();
+        return questionCache.getAll(IdListUtil.parse(questionIds));
+    }
+    
+    @Override
+    public Question getById(Serializable id) {
+        return questionCache.get(Long.valueOf(id.toString()));
+    }
+    
+    public void addQuestion(Question question) {
+        this.save(question);
+        Question saved = this.getBaseMapper().selectById(question.getId());
+        questionCache.put(saved);
+        cacheChangeLog.question(saved.getId());
+    }
+    
+    public void updateQuestion(Question question) {
+        this.updateById(question);
+        Question updated = this.getBaseMapper().selectById(question.getId());
+        if (updated != null) {
+            questionCache.put(updated);
         }
-        LambdaQueryWrapper<Question> wrapper = new LambdaQueryWrapper<>();
-        wrapper.in(Question::getId, questionIds.split(","));
-        return this.list(wrapper);
+        answerKeyCache.invalidateQuestion(question.getId());
+        paperPayloadCache.invalidateQuestion(question.getId());
+        cacheChangeLog.question(question.getId());
     }
     
-    // 获取所有模块列表（按analysis字段分组）
-    public List<Map<String, Object>> getModules() {
-        List<Question> questions = this.list();
-        Map<String, Integer> moduleCount = new HashMap<>();
-        
-        for (Question q : questions) {
-            String module = q.getAnalysis();
-            if (module != null && !module.isEmpty()) {
-                moduleCount.merge(module, 1, Integer::sum);
-            }
+    public void deleteQuestion(Long id) {
+        if (!this.removeById(id)) {
+            return;
         }
-        
-        List<Map<String, Object>> modules = new ArrayList<>();
-        moduleCount.forEach((name, count) -> {
-            Map<String, Object> module = new HashMap<>();
-            module.put("name", name);
-            module.put("count", count);
-            modules.add(module);
-        });
-        
-        // 按模块名称排序
-        modules.sort((a, b) -> {
-            String nameA = (String) a.get("name");
-            String nameB = (String) b.get("name");
-            if (nameA.startsWith("模块") && nameB.startsWith("模块")) {
-                return nameA.compareTo(nameB);
-            }
-            return nameA.compareTo(nameB);
-        });
-        
-        return modules;
+        questionCache.evict(id);
+        answerKeyCache.invalidateQuestion(id);
+        paperPayloadCache.invalidateQuestion(id);
+        cacheChangeLog.question(id);
+    }
+    
+    // 获取所有模块列表（按analysis字段分组），由模块目录随题库快照维护
+    public List<Map<String, Object>> getModules() {
+        return moduleCatalog.list();
     }
     
     // 练习模式：按模块获取题目（分页）
+    @Transactional(readOnly = true)
     public Page<Question> getQuestionsByModule(String module, Integer page, Integer limit) {
         Page<Question> pageParam = new Page<>(page, limit);
         LambdaQueryWrapper<Question> wrapper = new LambdaQueryWrapper<>();
@@ -89,12 +194,9 @@ public class QuestionService extends ServiceImpl<QuestionMapper, Question> {
     }
     
     // 考试模式：按模块随机抽取指定数量题目
-    public List<Question> getRandomQuestionsByModule(String module, Integer count) {
-        LambdaQueryWrapper<Question> wrapper = new LambdaQueryWrapper<>();
-        if (module != null && !module.isEmpty() && !"全部".equals(module)) {
-            wrapper.eq(Question::getAnalysis, module);
-        }
-        wrapper.last("ORDER BY RAND() LIMIT " + count);
-        return this.list(wrapper);
+    public List<Question> getRandomQuestionsByModule(String module, Integer count, Long seed) {
+        String filter = module == null || module.isEmpty() || "全部".equals(module) ? null : module;
+        return examMetrics.randomQuestions(true)
+                .record(() -> questionCache.getAll(questionSampler.sampleByModule(filter, count, seed)));
     }
 }
@@ -1,26 +1,51 @@
 package com.exam.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.exam.config.ExamMetrics;
 import com.exam.entity.User;
 import com.exam.mapper.UserMapper;
 import com.exam.util.JwtUtil;
+import com.exam.util.KeysetPage;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
 public class UserService extends ServiceImpl<UserMapper, User> {
     
     private final JwtUtil jwtUtil;
-    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordHashPool passwordHashPool;
+    private final ExamMetrics examMetrics;
     
-    public Map<String, Object> login(String username, String password) {
+    // 查询用户在请求线程完成，密码校验在哈希线程池中执行；线程池饱和时抛出 RejectedExecutionException
+    public CompletableFuture<Map<String, Object>> login(String username, String password) {
+        long start = System.nanoTime();
+        CompletableFuture<Map<String, Object>> result;
+        try {
+            result = doLogin(username, password);
+        } catch (RuntimeException e) {
+            if (!(e instanceof RejectedExecutionException)) {
+                examMetrics.login(false).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            throw e;
+        }
+        return result.whenComplete((value, error) ->
+                examMetrics.login(error == null).record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }
+    
+    private CompletableFuture<Map<String, Object>> doLogin(String username, String password) {
         LambdaQueryWrapper<User> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(User::getUsername, username);
         User user = this.getOne(wrapper);
@@ -31,16 +56,30 @@ public class UserService extends ServiceImpl<UserMapper, User> {
         if (user.getStatus() == 0) {
             throw new RuntimeException("账号已被禁用");
         }
-        if (!passwordEncoder.matches(password, user.getPassword())) {
-            throw new RuntimeException("密码错误");
-        }
         
-        String token = jwtUtil.generateToken(user.getId(), user.getRole());
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("token", token);
-        result.put("user", user);
-        return result;
+        return passwordHashPool.submit(() -> {
+            if (!passwordEncoder.matches(password, user.getPassword())) {
+                throw new RuntimeException("密码错误");
+            }
+            // 哈希强度低于当前配置时，登录成功后透明升级
+            if (passwordEncoder.upgradeEncoding(user.getPassword())) {
+                rehash(user.getId(), passwordEncoder.encode(password));
+            }
+            
+            String token = jwtUtil.generateToken(user.getId(), user.getRole());
+            
+            Map<String, Object> result = new HashMap<>();
+            result.put("token", token);
+            result.put("user", user);
+            return result;
+        });
+    }
+    
+    private void rehash(Long userId, String encoded) {
+        LambdaUpdateWrapper<User> wrapper = new LambdaUpdateWrapper<>();
+        wrapper.set(User::getPassword, encoded);
+        wrapper.eq(User::getId, userId);
+        this.update(wrapper);
     }
     
     public void register(User user) {
@@ -55,17 +94,34 @@ public class UserService extends ServiceImpl<UserMapper, User> {
         this.save(user);
     }
     
+    @Transactional(readOnly = true)
     public Page<User> getUserPage(Integer page, Integer limit, String username, Integer role) {
         Page<User> pageParam = new Page<>(page, limit);
+        LambdaQueryWrapper<User> wrapper = userFilter(username, role);
+        wrapper.orderByDesc(User::getCreateTime);
+        return this.page(pageParam, wrapper);
+    }
+    
+    // 游标分页，after 为上一页返回的 nextCursor
+    @Transactional(readOnly = true)
+    public KeysetPage<User> getUserKeysetPage(String after, Integer limit, String username, Integer role,
+                                              boolean withTotal) {
+        return KeysetPage.query(this, userFilter(username, role), User::getCreateTime, User::getId,
+                after, limit, withTotal);
+    }
+    
+    // 列表只查展示用的列，不读密码哈希
+    private LambdaQueryWrapper<User> userFilter(String username, Integer role) {
         LambdaQueryWrapper<User> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(User::getId, User::getUsername, User::getRealName, User::getRole, User::getStatus,
+                User::getCreateTime, User::getUpdateTime);
         if (username != null && !username.isEmpty()) {
             wrapper.like(User::getUsername, username);
         }
         if (role != null) {
             wrapper.eq(User::getRole, role);
         }
-        wrapper.orderByDesc(User::getCreateTime);
-        return this.page(pageParam, wrapper);
+        return wrapper;
     }
     
     public void addUser(User user) {
@@ -0,0 +1,39 @@
+package com.exam.util;
+
+import com.exam.config.JwtAuthenticationFilter;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * 当前登录用户，由 JwtAuthenticationFilter 写入安全上下文
+ */
+public final class AuthUtil {
+
+    private AuthUtil() {
+    }
+
+    public static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof Long userId)) {
+            throw new RuntimeException("未登录");
+        }
+        return userId;
+    }
+
+    // 未登录（后台线程、登录接口）时返回null
+    public static Long currentUserIdOrNull() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof Long userId ? userId : null;
+    }
+
+    public static boolean isTeacher() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getAuthorities().stream()
+                .anyMatch(authority -> JwtAuthenticationFilter.ROLE_TEACHER.equals(authority.getAuthority()));
+    }
+
+    // 数据归属范围：教师可访问全部（返回null），学生只能访问自己的数据
+    public static Long ownerScope() {
+        return isTeacher() ? null : currentUserId();
+    }
+}
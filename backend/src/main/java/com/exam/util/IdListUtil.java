@@ -0,0 +1,96 @@
+package com.exam.util;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 逗号分隔的ID列表解析工具
+ */
+public final class IdListUtil {
+    
+    // 不超过该长度时用两两比较去重
+    private static final int SMALL = 32;
+    
+    private IdListUtil() {
+    }
+    
+    // 解析 "1,2,3" 形式的ID列表，保持原有顺序并去重，忽略空白和非法项
+    public static long[] parse(String ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new long[0];
+        }
+        long[] result = new long[8];
+        int size = 0;
+        int len = ids.length();
+        int i = 0;
+        while (i < len) {
+            long value = 0;
+            int digits = 0;
+            boolean valid = true;
+            while (i < len && ids.charAt(i) != ',') {
+                char c = ids.charAt(i++);
+                if (c >= '0' && c <= '9') {
+                    value = value * 10 + (c - '0');
+                    digits++;
+                } else if (c != ' ') {
+                    valid = false;
+                }
+            }
+            i++;
+            if (!valid || digits == 0) {
+                continue;
+            }
+            if (size == result.length) {
+                result = Arrays.copyOf(result, size * 2);
+            }
+            result[size++] = value;
+        }
+        return distinct(result, size);
+    }
+    
+    public static String join(long[] ids) {
+        StringBuilder sb = new StringBuilder(ids.length * 4);
+        for (int i = 0; i < ids.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(ids[i]);
+        }
+        return sb.toString();
+    }
+    
+    // 保持首次出现的顺序去重；短列表直接比较，长列表先排序检查，没有重复（常见情况）时不再复制
+    private static long[] distinct(long[] values, int size) {
+        if (size > SMALL) {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            boolean duplicated = false;
+            for (int i = 1; i < size && !duplicated; i++) {
+                duplicated = sorted[i] == sorted[i - 1];
+            }
+            if (!duplicated) {
+                return size == values.length ? values : Arrays.copyOf(values, size);
+            }
+            Set<Long> seen = new HashSet<>(size * 2);
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (seen.add(values[i])) {
+                    values[count++] = values[i];
+                }
+            }
+            return Arrays.copyOf(values, count);
+        }
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            boolean seen = false;
+            for (int j = 0; j < count && !seen; j++) {
+                seen = values[j] == values[i];
+            }
+            if (!seen) {
+                values[count++] = values[i];
+            }
+        }
+        return count == values.length ? values : Arrays.copyOf(values, count);
+    }
+}
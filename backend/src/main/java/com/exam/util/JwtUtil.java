@@ -1,14 +1,23 @@
 package com.exam.util;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 @Component
 public class JwtUtil {
@@ -19,8 +28,24 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private Long expiration;
     
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    // 已验证token缓存上限
+    @Value("${jwt.cache-size:50000}")
+    private int cacheSize;
+    
+    // 密钥和解析器只在启动时构建一次
+    private SecretKey signingKey;
+    private JwtParser parser;
+    
+    // 已验签的token -> 解析结果，命中时跳过HMAC和JSON解析，过期后失效
+    private final Map<String, TokenInfo> verified = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser().verifyWith(signingKey).build();
     }
     
     public String generateToken(Long userId, Integer role) {
@@ -29,25 +54,102 @@ public class JwtUtil {
                 .claim("role", role)
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
     
     public Claims parseToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
+    }
+    
+    // 验证token并返回用户ID和角色，无效或已过期时返回null
+    public TokenInfo verify(String token) {
+        long now = System.currentTimeMillis();
+        TokenInfo info = verified.get(token);
+        if (info != null) {
+            if (info.getExpiresAt() > now) {
+                hits.increment();
+                return info;
+            }
+            verified.remove(token);
+            return null;
+        }
+        
+        misses.increment();
+        try {
+            Claims claims = parseToken(token);
+            Date expiresAt = claims.getExpiration();
+            info = new TokenInfo(Long.parseLong(claims.getSubject()), claims.get("role", Integer.class),
+                    expiresAt == null ? Long.MAX_VALUE : expiresAt.getTime());
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        if (verified.size() >= cacheSize) {
+            evict(now);
+        }
+        verified.put(token, info);
+        return info;
     }
     
     public Long getUserId(String token) {
-        Claims claims = parseToken(token);
-        return Long.parseLong(claims.getSubject());
+        TokenInfo info = verify(token);
+        return info == null ? null : info.getUserId();
     }
     
     public Integer getRole(String token) {
-        Claims claims = parseToken(token);
-        return claims.get("role", Integer.class);
+        TokenInfo info = verify(token);
+        return info == null ? null : info.getRole();
+    }
+    
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", verified.size());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        return stats;
+    }
+    
+    // 先清理过期项，仍超过上限时再任意淘汰到四分之三
+    private void evict(long now) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            verified.values().removeIf(info -> info.getExpiresAt() <= now);
+            Iterator<TokenInfo> it = verified.values().iterator();
+            while (verified.size() > cacheSize * 3 / 4 && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+    
+    public static final class TokenInfo {
+        private final Long userId;
+        private final Integer role;
+        private final long expiresAt;
+        
+        TokenInfo(Long userId, Integer role, long expiresAt) {
+            this.userId = userId;
+            this.role = role;
+            this.expiresAt = expiresAt;
+        }
+        
+        public Long getUserId() {
+            return userId;
+        }
+        
+        public Integer getRole() {
+            return role;
+        }
+        
+        public long getExpiresAt() {
+            return expiresAt;
+        }
     }
 }
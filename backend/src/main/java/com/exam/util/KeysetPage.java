@@ -0,0 +1,120 @@
+package com.exam.util;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.baomidou.mybatisplus.extension.service.IService;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标（keyset）分页结果
+ * 按 (create_time, id) 倒序翻页，游标为上一页最后一条记录的这两个值，
+ * 查询条件为 create_time &lt; ? OR (create_time = ? AND id &lt; ?)，深翻页不再有OFFSET扫描。
+ * 内存中已排好序的ID数组（如关键词搜索结果）用 slice 翻页，每页只按主键取这一页的数据。
+ */
+@Getter
+public class KeysetPage<T> {
+    
+    private final List<T> records;
+    private final String nextCursor; // 没有下一页时为null
+    private final Long total; // 未要求统计时为null
+    
+    private KeysetPage(List<T> records, String nextCursor, Long total) {
+        this.records = records;
+        this.nextCursor = nextCursor;
+        this.total = total;
+    }
+    
+    // wrapper 中只放过滤条件，排序和游标条件在这里追加；after 为空字符串时取第一页
+    public static <T> KeysetPage<T> query(IService<T> service, LambdaQueryWrapper<T> wrapper,
+                                          SFunction<T, LocalDateTime> timeColumn, SFunction<T, Long> idColumn,
+                                          String after, int limit, boolean withTotal) {
+        limit = Math.max(limit, 1);
+        // count() 会把 wrapper 中的列投影拼进 COUNT(...)，改用分页插件的 COUNT(*) 改写（size 为0时只统计不取数据）
+        Long total = withTotal ? service.page(new Page<>(1, 0), wrapper).getTotal() : null;
+        if (after != null && !after.isEmpty()) {
+            String[] cursor = decode(after);
+            LocalDateTime time;
+            long id;
+            try {
+                time = LocalDateTime.parse(cursor[0]);
+                id = Long.parseLong(cursor[1]);
+            } catch (RuntimeException e) {
+                throw new RuntimeException("无效的分页游标");
+            }
+            wrapper.and(w -> w.lt(timeColumn, time).or(o -> o.eq(timeColumn, time).lt(idColumn, id)));
+        }
+        wrapper.orderByDesc(timeColumn).orderByDesc(idColumn);
+        
+        // 多取一条判断是否还有下一页，不执行COUNT
+        List<T> records = service.page(new Page<>(1, limit + 1, false), wrapper).getRecords();
+        String nextCursor = null;
+        if (records.size() > limit) {
+            records = records.subList(0, limit);
+            T last = records.get(limit - 1);
+            nextCursor = encode(timeColumn.apply(last), idColumn.apply(last));
+        }
+        return new KeysetPage<>(records, nextCursor, total);
+    }
+    
+    // ids 为已排序的完整结果，从游标中的ID之后取 limit 个交给 loader 加载；游标ID已不在结果中时，
+    // 从它之后第一个更小的ID继续
+    public static <T> KeysetPage<T> slice(long[] ids, String after, int limit, boolean withTotal,
+                                          Function<long[], List<T>> loader,
+                                          Function<T, LocalDateTime> timeColumn, Function<T, Long> idColumn) {
+        limit = Math.max(limit, 1);
+        int from = 0;
+        if (after != null && !after.isEmpty()) {
+            long id;
+            try {
+                id = Long.parseLong(decode(after)[1]);
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("无效的分页游标");
+            }
+            from = ids.length;
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == id) {
+                    from = i + 1;
+                    break;
+                }
+                if (ids[i] < id && from == ids.length) {
+                    from = i;
+                }
+            }
+        }
+        int to = (int) Math.min((long) from + limit, ids.length);
+        List<T> records = loader.apply(Arrays.copyOfRange(ids, from, to));
+        String nextCursor = null;
+        if (to < ids.length) {
+            T last = records.isEmpty() ? null : records.get(records.size() - 1);
+            // 这一页的题目都已删除时仍以最后一个ID为游标
+            nextCursor = encode(last == null ? null : timeColumn.apply(last), ids[to - 1]);
+        }
+        return new KeysetPage<>(records, nextCursor, withTotal ? (long) ids.length : null);
+    }
+    
+    private static String encode(LocalDateTime time, Long id) {
+        String raw = time + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static String[] decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException();
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("无效的分页游标");
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.exam.util;
+
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+/**
+ * 后台线程创建
+ * 开启 spring.threads.virtual.enabled（需 Java 21）时创建虚拟线程，否则创建守护平台线程。
+ */
+public final class ThreadFactories {
+
+    private ThreadFactories() {
+    }
+
+    public static Thread newThread(String name, Runnable task, boolean virtual) {
+        if (virtual) {
+            return new VirtualThreadTaskExecutor(name + "-").getVirtualThreadFactory().newThread(task);
+        }
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
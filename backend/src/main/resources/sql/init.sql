@@ -13,7 +13,8 @@ CREATE TABLE IF NOT EXISTS t_user (
     status INT NOT NULL DEFAULT 1 COMMENT '状态: 1-启用 0-禁用',
     create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
     update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-    deleted INT DEFAULT 0
+    deleted INT DEFAULT 0,
+    KEY idx_user_ctime (create_time)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- 题目表
@@ -31,21 +32,33 @@ CREATE TABLE IF NOT EXISTS t_question (
     create_by BIGINT COMMENT '创建人ID',
     create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
     update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-    deleted INT DEFAULT 0
+    deleted INT DEFAULT 0,
+    KEY idx_question_ctime (create_time)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- 试卷表
 CREATE TABLE IF NOT EXISTS t_paper (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
     title VARCHAR(100) NOT NULL COMMENT '试卷标题',
-    question_ids VARCHAR(500) COMMENT '题目ID列表，逗号分隔',
+    question_ids VARCHAR(500) COMMENT '已废弃，题目列表见 t_paper_question',
     total_score INT DEFAULT 0 COMMENT '总分',
     duration INT NOT NULL DEFAULT 60 COMMENT '考试时长(分钟)',
     create_by BIGINT COMMENT '创建人ID',
     status INT DEFAULT 1 COMMENT '状态: 1-启用 0-禁用',
     create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
     update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-    deleted INT DEFAULT 0
+    deleted INT DEFAULT 0,
+    KEY idx_paper_ctime (create_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 试卷题目关联表
+CREATE TABLE IF NOT EXISTS t_paper_question (
+    paper_id BIGINT NOT NULL COMMENT '试卷ID',
+    question_id BIGINT NOT NULL COMMENT '题目ID',
+    seq INT NOT NULL COMMENT '题目顺序',
+    score_override INT COMMENT '本卷分值，为空时使用题目分值',
+    PRIMARY KEY (paper_id, seq),
+    KEY idx_question (question_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- 考试记录表
@@ -54,16 +67,71 @@ CREATE TABLE IF NOT EXISTS t_exam_record (
     user_id BIGINT NOT NULL COMMENT '用户ID',
     paper_id BIGINT NOT NULL COMMENT '试卷ID',
     answers TEXT COMMENT '用户答案，JSON格式',
+    answer_codes VARBINARY(1024) COMMENT '交卷作答的二进制编码（每题3位），非空时 answers 为空',
     score INT DEFAULT 0 COMMENT '得分',
-    status INT DEFAULT 0 COMMENT '状态: 1-已完成 0-进行中',
+    status INT DEFAULT 0 COMMENT '状态: 1-已完成 0-进行中 2-评分中',
     start_time DATETIME COMMENT '开始时间',
     submit_time DATETIME COMMENT '提交时间',
+    submit_key VARCHAR(64) COMMENT '交卷幂等键，重复提交时据此返回首次结果',
+    grade_time DATETIME(3) COMMENT '评分完成时间（数据库时钟），各节点排行榜据此增量同步',
     create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
     deleted INT DEFAULT 0,
+    KEY idx_record_ctime (create_time),
+    KEY idx_record_user_ctime (user_id, create_time),
+    KEY idx_record_grade_time (grade_time),
+    KEY idx_record_status (status),
     FOREIGN KEY (user_id) REFERENCES t_user(id),
     FOREIGN KEY (paper_id) REFERENCES t_paper(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
+-- 题目作答统计（交卷时增量累加）
+CREATE TABLE IF NOT EXISTS t_question_stat (
+    question_id BIGINT PRIMARY KEY COMMENT '题目ID',
+    attempts BIGINT NOT NULL DEFAULT 0 COMMENT '作答次数',
+    correct BIGINT NOT NULL DEFAULT 0 COMMENT '答对次数',
+    pick_a BIGINT NOT NULL DEFAULT 0,
+    pick_b BIGINT NOT NULL DEFAULT 0,
+    pick_c BIGINT NOT NULL DEFAULT 0,
+    pick_d BIGINT NOT NULL DEFAULT 0,
+    pick_t BIGINT NOT NULL DEFAULT 0,
+    pick_f BIGINT NOT NULL DEFAULT 0
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 试卷统计，bucket0~bucket9 为得分占总分 0-10%、10-20%…90-100% 的人数
+CREATE TABLE IF NOT EXISTS t_paper_stat (
+    paper_id BIGINT PRIMARY KEY COMMENT '试卷ID',
+    submissions BIGINT NOT NULL DEFAULT 0 COMMENT '交卷数',
+    score_sum BIGINT NOT NULL DEFAULT 0 COMMENT '总得分',
+    passed BIGINT NOT NULL DEFAULT 0 COMMENT '及格人数',
+    bucket0 BIGINT NOT NULL DEFAULT 0,
+    bucket1 BIGINT NOT NULL DEFAULT 0,
+    bucket2 BIGINT NOT NULL DEFAULT 0,
+    bucket3 BIGINT NOT NULL DEFAULT 0,
+    bucket4 BIGINT NOT NULL DEFAULT 0,
+    bucket5 BIGINT NOT NULL DEFAULT 0,
+    bucket6 BIGINT NOT NULL DEFAULT 0,
+    bucket7 BIGINT NOT NULL DEFAULT 0,
+    bucket8 BIGINT NOT NULL DEFAULT 0,
+    bucket9 BIGINT NOT NULL DEFAULT 0
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 统计重建纪元：只有一行，重建写表时推进，各节点丢弃重建前累积的增量
+CREATE TABLE IF NOT EXISTS t_stat_epoch (
+    id INT PRIMARY KEY,
+    epoch BIGINT NOT NULL DEFAULT 0 COMMENT '统计重建次数',
+    rebuilding INT NOT NULL DEFAULT 0 COMMENT '是否有节点正在重建',
+    rebuild_time DATETIME COMMENT '最近一次开始重建的时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 缓存变更日志：题目、试卷写入时追加，各节点按ID轮询并失效本地缓存
+CREATE TABLE IF NOT EXISTS t_cache_change (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    entity_type VARCHAR(16) NOT NULL COMMENT '变更对象: question/paper/question-all',
+    entity_id BIGINT COMMENT '题目或试卷ID，question-all 为空',
+    create_time DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    KEY idx_change_ctime (create_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 -- 初始化默认教师账号: admin/admin123
 INSERT INTO t_user (username, password, real_name, role, status)
 VALUES ('admin', '$2b$10$nm9vHOx5Qu2dyCP5eCMzc.heB65vmSvwW/SPbJVWKES3.NiFReQ6q', '管理员', 1, 1);
@@ -93,3 +161,11 @@ INSERT INTO t_question (content, type, option_a, option_b, option_c, option_d, a
 -- 初始化示例试卷
 INSERT INTO t_paper (title, question_ids, total_score, duration, create_by, status) 
 VALUES ('计算机基础测试', '1,2,3,4,5,6,7,8,9,10,11,12,13,14,15', 75, 60, 1, 1);
+
+-- 示例试卷题目
+INSERT INTO t_paper_question (paper_id, question_id, seq) VALUES
+(1, 1, 0), (1, 2, 1), (1, 3, 2), (1, 4, 3), (1, 5, 4), (1, 6, 5), (1, 7, 6), (1, 8, 7),
+(1, 9, 8), (1, 10, 9), (1, 11, 10), (1, 12, 11), (1, 13, 12), (1, 14, 13), (1, 15, 14);
+
+-- 统计重建纪元
+INSERT INTO t_stat_epoch (id, epoch, rebuilding) VALUES (1, 0, 0);
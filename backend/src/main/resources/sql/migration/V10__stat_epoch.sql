@@ -0,0 +1,12 @@
+-- 统计重建纪元（已有数据库升级用）
+-- 多节点部署时重建统计推进纪元，其他节点丢弃重建前累积、尚未落库的增量
+USE exam_db;
+
+CREATE TABLE IF NOT EXISTS t_stat_epoch (
+    id INT PRIMARY KEY,
+    epoch BIGINT NOT NULL DEFAULT 0 COMMENT '统计重建次数',
+    rebuilding INT NOT NULL DEFAULT 0 COMMENT '是否有节点正在重建',
+    rebuild_time DATETIME COMMENT '最近一次开始重建的时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+INSERT IGNORE INTO t_stat_epoch (id, epoch, rebuilding) VALUES (1, 0, 0);
@@ -0,0 +1,5 @@
+-- 考试记录状态说明（已有数据库升级用）
+-- 异步交卷会写入状态 2（评分中），只修改列注释
+USE exam_db;
+
+ALTER TABLE t_exam_record MODIFY COLUMN status INT DEFAULT 0 COMMENT '状态: 1-已完成 0-进行中 2-评分中';
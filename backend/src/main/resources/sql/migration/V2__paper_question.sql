@@ -0,0 +1,12 @@
+-- 试卷题目关联表（已有数据库升级用）
+-- 建表后启动应用，会自动把 t_paper.question_ids 中的旧数据迁移到本表
+USE exam_db;
+
+CREATE TABLE IF NOT EXISTS t_paper_question (
+    paper_id BIGINT NOT NULL COMMENT '试卷ID',
+    question_id BIGINT NOT NULL COMMENT '题目ID',
+    seq INT NOT NULL COMMENT '题目顺序',
+    score_override INT COMMENT '本卷分值，为空时使用题目分值',
+    PRIMARY KEY (paper_id, seq),
+    KEY idx_question (question_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
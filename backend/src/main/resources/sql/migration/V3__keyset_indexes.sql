@@ -0,0 +1,9 @@
+-- 游标分页索引（已有数据库升级用）
+-- InnoDB二级索引隐含主键列，(create_time) 即可支持 ORDER BY create_time DESC, id DESC 的范围扫描
+USE exam_db;
+
+ALTER TABLE t_user ADD INDEX idx_user_ctime (create_time);
+ALTER TABLE t_question ADD INDEX idx_question_ctime (create_time);
+ALTER TABLE t_paper ADD INDEX idx_paper_ctime (create_time);
+ALTER TABLE t_exam_record ADD INDEX idx_record_ctime (create_time);
+ALTER TABLE t_exam_record ADD INDEX idx_record_user_ctime (user_id, create_time);
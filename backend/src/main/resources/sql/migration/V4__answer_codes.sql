@@ -0,0 +1,5 @@
+-- 交卷作答的二进制编码（已有数据库升级用）
+-- 旧记录仍读取 answers 中的JSON；教师调用 POST /api/exam-records/compact-answers 可分批转换
+USE exam_db;
+
+ALTER TABLE t_exam_record ADD COLUMN answer_codes VARBINARY(1024) COMMENT '交卷作答的二进制编码（每题3位），非空时 answers 为空' AFTER answers;
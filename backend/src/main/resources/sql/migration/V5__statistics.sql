@@ -0,0 +1,34 @@
+-- 题目与试卷统计汇总表（已有数据库升级用）
+-- 建表后教师调用 POST /api/stats/rebuild 从已有考试记录重算
+USE exam_db;
+
+-- 题目作答统计（交卷时增量累加）
+CREATE TABLE IF NOT EXISTS t_question_stat (
+    question_id BIGINT PRIMARY KEY COMMENT '题目ID',
+    attempts BIGINT NOT NULL DEFAULT 0 COMMENT '作答次数',
+    correct BIGINT NOT NULL DEFAULT 0 COMMENT '答对次数',
+    pick_a BIGINT NOT NULL DEFAULT 0,
+    pick_b BIGINT NOT NULL DEFAULT 0,
+    pick_c BIGINT NOT NULL DEFAULT 0,
+    pick_d BIGINT NOT NULL DEFAULT 0,
+    pick_t BIGINT NOT NULL DEFAULT 0,
+    pick_f BIGINT NOT NULL DEFAULT 0
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 试卷统计，bucket0~bucket9 为得分占总分 0-10%、10-20%…90-100% 的人数
+CREATE TABLE IF NOT EXISTS t_paper_stat (
+    paper_id BIGINT PRIMARY KEY COMMENT '试卷ID',
+    submissions BIGINT NOT NULL DEFAULT 0 COMMENT '交卷数',
+    score_sum BIGINT NOT NULL DEFAULT 0 COMMENT '总得分',
+    passed BIGINT NOT NULL DEFAULT 0 COMMENT '及格人数',
+    bucket0 BIGINT NOT NULL DEFAULT 0,
+    bucket1 BIGINT NOT NULL DEFAULT 0,
+    bucket2 BIGINT NOT NULL DEFAULT 0,
+    bucket3 BIGINT NOT NULL DEFAULT 0,
+    bucket4 BIGINT NOT NULL DEFAULT 0,
+    bucket5 BIGINT NOT NULL DEFAULT 0,
+    bucket6 BIGINT NOT NULL DEFAULT 0,
+    bucket7 BIGINT NOT NULL DEFAULT 0,
+    bucket8 BIGINT NOT NULL DEFAULT 0,
+    bucket9 BIGINT NOT NULL DEFAULT 0
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
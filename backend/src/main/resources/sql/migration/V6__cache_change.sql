@@ -0,0 +1,10 @@
+-- 多节点缓存一致性的变更日志表（已有数据库升级用）
+USE exam_db;
+
+CREATE TABLE IF NOT EXISTS t_cache_change (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    entity_type VARCHAR(16) NOT NULL COMMENT '变更对象: question/paper/question-all',
+    entity_id BIGINT COMMENT '题目或试卷ID，question-all 为空',
+    create_time DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    KEY idx_change_ctime (create_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
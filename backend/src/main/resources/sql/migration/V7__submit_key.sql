@@ -0,0 +1,4 @@
+-- 交卷幂等键（已有数据库升级用）
+USE exam_db;
+
+ALTER TABLE t_exam_record ADD COLUMN submit_key VARCHAR(64) COMMENT '交卷幂等键，重复提交时据此返回首次结果' AFTER submit_time;
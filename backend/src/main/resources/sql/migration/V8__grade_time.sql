@@ -0,0 +1,5 @@
+-- 评分完成时间，多节点排行榜按此增量同步（已有数据库升级用）
+USE exam_db;
+
+ALTER TABLE t_exam_record ADD COLUMN grade_time DATETIME(3) COMMENT '评分完成时间（数据库时钟），各节点排行榜据此增量同步' AFTER submit_key;
+ALTER TABLE t_exam_record ADD INDEX idx_record_grade_time (grade_time);
@@ -0,0 +1,5 @@
+-- 评分巡检索引（已有数据库升级用）
+-- InnoDB二级索引隐含主键列，(status) 即可支持 WHERE status = 2 AND id > ? ORDER BY id 的范围扫描
+USE exam_db;
+
+ALTER TABLE t_exam_record ADD INDEX idx_record_status (status);
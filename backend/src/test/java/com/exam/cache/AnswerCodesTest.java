@@ -0,0 +1,65 @@
+package com.exam.cache;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnswerCodesTest {
+
+    // 341 题共 1023 位，最后一题落在末字节，读写时不能越界访问下一字节
+    @ParameterizedTest
+    @ValueSource(ints = {1, 8, 100, 341})
+    void setThenGetRoundTrips(int size) {
+        Random random = new Random(size);
+        int fingerprint = random.nextInt();
+        byte[] codes = AnswerCodes.allocate(fingerprint, size);
+        int[] expected = new int[size];
+        for (int i = 0; i < size; i++) {
+            expected[i] = random.nextInt(7);
+            AnswerCodes.set(codes, i, expected[i]);
+        }
+        assertAll(codes, expected);
+        assertTrue(AnswerCodes.matches(codes, fingerprint, size));
+        assertEquals(fingerprint, AnswerCodes.fingerprint(codes));
+        assertEquals(fingerprint, AnswerCodes.layoutFingerprint(codes));
+    }
+
+    // 乱序改写（包括改回未作答）不影响相邻位置
+    @ParameterizedTest
+    @ValueSource(ints = {1, 8, 100, 341})
+    void overwriteKeepsNeighbours(int size) {
+        Random random = new Random(-size);
+        byte[] codes = AnswerCodes.allocate(0, size);
+        int[] expected = new int[size];
+        for (int round = 0; round < size * 4; round++) {
+            int position = random.nextInt(size);
+            expected[position] = random.nextInt(7);
+            AnswerCodes.set(codes, position, expected[position]);
+        }
+        assertAll(codes, expected);
+        for (int i = 0; i < size; i++) {
+            AnswerCodes.set(codes, i, AnswerCodes.UNANSWERED);
+        }
+        assertAll(codes, new int[size]);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 8, 100, 341})
+    void matchesRejectsOtherLayouts(int size) {
+        byte[] codes = AnswerCodes.allocate(42, size);
+        assertFalse(AnswerCodes.matches(codes, 43, size));
+        assertFalse(AnswerCodes.matches(codes, 42, size + 3));
+        assertFalse(AnswerCodes.matches(null, 42, size));
+    }
+
+    private static void assertAll(byte[] codes, int[] expected) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], AnswerCodes.get(codes, i), "position " + i);
+        }
+    }
+}
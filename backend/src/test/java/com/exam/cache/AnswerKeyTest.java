@@ -0,0 +1,44 @@
+package com.exam.cache;
+
+import com.exam.entity.Question;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AnswerKeyTest {
+
+    @Test
+    void singleLetterIgnoresCase() {
+        AnswerKey key = AnswerKey.compile(List.of(question(1, "B", 5)));
+        assertEquals(5, key.grade("{\"1\":\"B\"}"));
+        assertEquals(5, key.grade("{\"1\":\"b\"}"));
+        assertEquals(0, key.grade("{\"1\":\"A\"}"));
+        assertEquals(0, key.grade("{\"1\":\"BB\"}"));
+    }
+
+    // 多字母答案按字符串比较：重复字母、顺序不同都不算对
+    @Test
+    void multiLetterComparesLiterally() {
+        AnswerKey key = AnswerKey.compile(List.of(question(1, "ABB", 5), question(2, "AB", 3)));
+        assertEquals(0, key.grade("{\"1\":\"AAB\"}"));
+        assertEquals(0, key.grade("{\"2\":\"BA\"}"));
+        assertEquals(8, key.grade("{\"1\":\"abb\",\"2\":\"AB\"}"));
+    }
+
+    @Test
+    void binaryAnswersGradeAgainstLayout() {
+        AnswerKey key = AnswerKey.compile(List.of(question(1, "A", 2), question(2, "AB", 3), question(3, "T", 4)));
+        byte[] codes = key.getLayout().encode("{\"1\":\"A\",\"3\":\"F\"}");
+        assertEquals(2, key.grade(codes));
+    }
+
+    private static Question question(long id, String answer, int score) {
+        Question question = new Question();
+        question.setId(id);
+        question.setAnswer(answer);
+        question.setScore(score);
+        return question;
+    }
+}
@@ -0,0 +1,119 @@
+package com.exam.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScoreBoardTest {
+
+    // 分数降序，同分先交卷的在前，再按记录ID
+    private static final Comparator<long[]> RANK_ORDER = Comparator.<long[]>comparingLong(e -> -e[2])
+            .thenComparingLong(e -> e[3])
+            .thenComparingLong(e -> e[1]);
+
+    @Test
+    void rankMatchesBruteForceSort() {
+        Random random = new Random(7);
+        ScoreBoard board = new ScoreBoard(100);
+        Map<Long, long[]> best = new HashMap<>();
+        for (long recordId = 1; recordId <= 3000; recordId++) {
+            long userId = random.nextInt(400);
+            int score = random.nextInt(101);
+            long submitTime = random.nextInt(1000);
+            offer(board, best, userId, recordId, score, submitTime);
+            if (recordId % 250 == 0) {
+                assertRanks(board, best);
+            }
+        }
+        assertRanks(board, best);
+    }
+
+    @Test
+    void repeatedRecordIsIgnored() {
+        ScoreBoard board = new ScoreBoard(100);
+        assertTrue(board.offer(1, 10, 80, 5));
+        assertFalse(board.offer(1, 10, 80, 5));
+        assertFalse(board.offer(1, 11, 70, 1));
+        assertEquals(1, board.size());
+        assertEquals(1, board.rankOf(1));
+        assertEquals(0, board.rankOf(2));
+    }
+
+    // 试卷分值调高后出现超过原总分的成绩
+    @Test
+    void growsWhenScoreExceedsMaximum() {
+        ScoreBoard board = new ScoreBoard(10);
+        Map<Long, long[]> best = new HashMap<>();
+        long recordId = 1;
+        for (long userId = 0; userId < 30; userId++) {
+            offer(board, best, userId, recordId++, (int) (userId % 11), userId);
+        }
+        offer(board, best, 100, recordId++, 15, 0);
+        assertEquals(1, board.rankOf(100));
+        assertRanks(board, best);
+
+        // 超过两倍原容量
+        offer(board, best, 101, recordId++, 60, 0);
+        offer(board, best, 5, recordId++, 45, 0);
+        assertEquals(1, board.rankOf(101));
+        assertEquals(2, board.rankOf(5));
+        assertEquals(3, board.rankOf(100));
+        assertRanks(board, best);
+
+        Random random = new Random(3);
+        for (int i = 0; i < 500; i++) {
+            offer(board, best, random.nextInt(60), recordId++, random.nextInt(200), random.nextInt(100));
+        }
+        assertRanks(board, best);
+    }
+
+    // 截止前集中交卷：大多数成绩落在少数几个分数桶，交卷时间乱序到达，其中一部分再交一次刷新成绩
+    @Test
+    void manyEqualScores() {
+        Random random = new Random(11);
+        ScoreBoard board = new ScoreBoard(100);
+        Map<Long, long[]> best = new HashMap<>();
+        long recordId = 1;
+        for (long userId = 0; userId < 20000; userId++) {
+            offer(board, best, userId, recordId++, 95 + random.nextInt(3), random.nextInt(5000));
+        }
+        for (int i = 0; i < 5000; i++) {
+            offer(board, best, random.nextInt(20000), recordId++, 95 + random.nextInt(3), random.nextInt(5000));
+        }
+        assertRanks(board, best);
+    }
+
+    private static void offer(ScoreBoard board, Map<Long, long[]> best, long userId, long recordId, int score,
+                              long submitTime) {
+        long[] entry = {userId, recordId, score, submitTime};
+        long[] current = best.get(userId);
+        boolean better = current == null || RANK_ORDER.compare(entry, current) < 0;
+        assertEquals(better, board.offer(userId, recordId, score, submitTime));
+        if (better) {
+            best.put(userId, entry);
+        }
+    }
+
+    private static void assertRanks(ScoreBoard board, Map<Long, long[]> best) {
+        List<long[]> sorted = new ArrayList<>(best.values());
+        sorted.sort(RANK_ORDER);
+        assertEquals(sorted.size(), board.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            assertEquals(i + 1, board.rankOf(sorted.get(i)[0]), "user " + sorted.get(i)[0]);
+        }
+        List<ScoreBoard.Entry> top = board.top(20);
+        assertEquals(Math.min(20, sorted.size()), top.size());
+        for (int i = 0; i < top.size(); i++) {
+            assertEquals(sorted.get(i)[1], top.get(i).getRecordId());
+        }
+    }
+}